@@ -0,0 +1,50 @@
+package com.es2.project.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs the benchmark suite and writes JSON results to {@code benchmarks/results}, so runs
+ * can be compared over time. Any arguments are passed straight to JMH instead
+ * (e.g. {@code StorageBenchmark -p vaultSize=1000 -rf json}).
+ */
+public class BenchmarkRunner {
+    private static final int[] CRYPTO_THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        File results = new File(System.getProperty("bench.results", "benchmarks/results"));
+        if (!results.isDirectory() && !results.mkdirs()) {
+            throw new IOException("Não foi possível criar " + results);
+        }
+
+        run(new OptionsBuilder()
+                .include(StorageBenchmark.class.getSimpleName())
+                .include(GeneratorBenchmark.class.getSimpleName())
+                .include(SnapshotBenchmark.class.getSimpleName()), new File(results, "single-thread.json"));
+
+        for (int threads : CRYPTO_THREADS) {
+            run(new OptionsBuilder()
+                    .include(CryptoBenchmark.class.getSimpleName())
+                    .include(CipherPoolBenchmark.class.getSimpleName())
+                    .threads(threads), new File(results, "concurrent-" + threads + "t.json"));
+        }
+    }
+
+    private static void run(ChainedOptionsBuilder options, File output) throws RunnerException {
+        new Runner(options
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.getPath())
+                .build()).run();
+    }
+}
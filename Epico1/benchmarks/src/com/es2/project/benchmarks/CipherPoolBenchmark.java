@@ -0,0 +1,46 @@
+package com.es2.project.benchmarks;
+
+import com.es2.project.CipherPool;
+import com.es2.project.CipherProvider;
+import com.es2.project.ConcurrentCipherPool;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrow/release cost under contention, legacy synchronized pool versus
+ * ConcurrentCipherPool. Both are sized so that no borrower ever fails.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CipherPoolBenchmark {
+    private static final String KEY = "benchmark-key-segura";
+
+    @Param({"LEGACY", "CONCURRENT"})
+    String pool;
+
+    private CipherProvider provider;
+
+    @Setup
+    public void setUp() {
+        if ("LEGACY".equals(pool)) {
+            CipherPool.reset(KEY);
+            CipherPool legacy = CipherPool.getInstance(KEY);
+            legacy.setMaxSize(1024);
+            provider = legacy;
+        } else {
+            provider = new ConcurrentCipherPool(KEY, 1024, 1000);
+        }
+    }
+
+    @Benchmark
+    public void borrowAndRelease() throws Exception {
+        Cipher cipher = provider.borrowCipher(Cipher.ENCRYPT_MODE);
+        provider.releaseCipher(cipher);
+    }
+}
@@ -0,0 +1,55 @@
+package com.es2.project.benchmarks;
+
+import com.es2.project.CryptoManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypt/decrypt throughput of the shared CryptoManager. Run with {@code -t 1,4,16,64}
+ * (BenchmarkRunner does this) to see how it scales with concurrent callers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CryptoBenchmark {
+    private static final String PASSWORD = "correct-horse-battery-staple";
+
+    private CryptoManager crypto;
+    private String ciphertext;
+
+    @Setup
+    public void setUp() {
+        crypto = CryptoManager.getInstance();
+        ciphertext = crypto.encrypt(PASSWORD);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return crypto.encrypt(PASSWORD);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return crypto.decrypt(ciphertext);
+    }
+
+    @State(Scope.Thread)
+    public static class Buffers {
+        final char[] password = PASSWORD.toCharArray();
+        final char[] out = new char[64];
+    }
+
+    @Benchmark
+    public String encryptChars(Buffers buffers) {
+        return crypto.encrypt(buffers.password);
+    }
+
+    @Benchmark
+    public int decryptChars(Buffers buffers) {
+        return crypto.decrypt(ciphertext, 0, buffers.out);
+    }
+}
@@ -0,0 +1,47 @@
+package com.es2.project.benchmarks;
+
+import com.es2.project.AppConfig;
+import com.es2.project.PasswordGenerator;
+import com.es2.project.PasswordGeneratorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password generation throughput per generator and length, one at a time and in bulk
+ * batches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GeneratorBenchmark {
+    private static final int BATCH = 10_000;
+
+    @Param({AppConfig.ALPHANUMERIC, AppConfig.SPECIAL})
+    String type;
+
+    @Param({"11", "32", "128"})
+    int length;
+
+    private PasswordGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = PasswordGeneratorFactory.createGenerator(type);
+    }
+
+    @Benchmark
+    public String generate() {
+        return generator.generate(length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<String> generateBatch() {
+        return generator.generateBatch(BATCH, length);
+    }
+}
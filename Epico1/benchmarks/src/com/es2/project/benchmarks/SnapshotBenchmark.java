@@ -0,0 +1,54 @@
+package com.es2.project.benchmarks;
+
+import com.es2.project.AppConfig;
+import com.es2.project.AppStateBackupService;
+import com.es2.project.AppStateManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of AppStateBackupService.takeSnapshot as the recorded access history grows.
+ * Each category keeps at most {@code history.max.entries} accesses, so the history is
+ * spread over as many categories as it takes to actually retain {@code historySize}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnapshotBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int historySize;
+
+    private AppStateManager stateManager;
+    private AppStateBackupService backupService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stateManager = AppStateManager.getInstance();
+        int perCategory = AppConfig.getInstance().getHistoryMaxEntries();
+        int categories = (historySize + perCategory - 1) / perCategory;
+        for (int i = 0; i < historySize; i++) {
+            stateManager.recordAccess("category" + (i % categories), "ciphertext" + i, "modification");
+        }
+        int retained = stateManager.saveState().getState().values().stream().mapToInt(List::size).sum();
+        if (retained != historySize) {
+            throw new IllegalStateException("Histórico retido: " + retained + " de " + historySize);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void newService() {
+        // cada iteração começa sem snapshots guardados, para não acumular memória
+        backupService = new AppStateBackupService(stateManager);
+    }
+
+    @Benchmark
+    public int takeSnapshot() {
+        backupService.takeSnapshot();
+        return backupService.totalSnapshots();
+    }
+}
@@ -0,0 +1,82 @@
+package com.es2.project.benchmarks;
+
+import com.es2.project.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Save/load cost of each PasswordStorage backend as the vault grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StorageBenchmark {
+    private static final String CIPHERTEXT = "ffn5B4xeNkMVgnq9MddoTorbI7VmHnZKTjQxtuNtBdk=";
+
+    @Param({"100", "1000", "10000"})
+    int vaultSize;
+
+    @Param({AppConfig.STORAGE_FILE, AppConfig.STORAGE_INDEXED, AppConfig.STORAGE_LOG, AppConfig.STORAGE_MAPPED})
+    String backend;
+
+    private Path directory;
+    private PasswordStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("storage-bench");
+        String path = directory.resolve("PasswordFile").toString();
+        switch (backend) {
+            case AppConfig.STORAGE_INDEXED:
+                storage = IndexedFilePasswordStorage.open(path, 1000);
+                break;
+            case AppConfig.STORAGE_LOG:
+                storage = LogStructuredPasswordStorage.open(path + ".segments");
+                break;
+            case AppConfig.STORAGE_MAPPED:
+                storage = new MappedPasswordStorage(path + ".vault");
+                break;
+            default:
+                storage = new FilePasswordStorage(path);
+        }
+        Map<String, String> initial = new HashMap<>();
+        for (int i = 0; i < vaultSize; i++) {
+            initial.put("category" + i, CIPHERTEXT);
+        }
+        storage.saveAll(initial);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private String randomCategory() {
+        return "category" + ThreadLocalRandom.current().nextInt(vaultSize);
+    }
+
+    @Benchmark
+    public void save() {
+        storage.savePassword(randomCategory(), CIPHERTEXT);
+    }
+
+    @Benchmark
+    public String load() {
+        return storage.loadPassword(randomCategory());
+    }
+}
@@ -0,0 +1,94 @@
+package com.es2.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded access history of one category: a ring buffer of the most recent
+ * {@code maxEntries} accesses, where entries older than {@code maxAgeMillis}
+ * (0 = no age limit) are dropped as new ones arrive or the history is read.
+ * <p>
+ * The latest modification is kept aside even once it leaves the ring, so a
+ * snapshot can always restore the category's password.
+ * <p>
+ * {@link #snapshot()} hands out an immutable list that is reused until the history
+ * changes, so snapshots of an unchanged category share the same list.
+ */
+class AccessHistory {
+    private final AppStateManager.AccessInfo[] ring;
+    private final long maxAgeMillis;
+    private int head; // posição da entrada mais antiga
+    private int size;
+    private AppStateManager.AccessInfo lastModification;
+    private List<AppStateManager.AccessInfo> snapshot; // null quando desatualizado
+
+    AccessHistory(int maxEntries, long maxAgeMillis) {
+        this.ring = new AppStateManager.AccessInfo[maxEntries];
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    synchronized void add(AppStateManager.AccessInfo info) {
+        if (size == ring.length) {
+            ring[head] = info;
+            head = (head + 1) % ring.length;
+        } else {
+            ring[(head + size) % ring.length] = info;
+            size++;
+        }
+        if (AppStateManager.MODIFICATION.equals(info.getAction())) {
+            lastModification = info;
+        }
+        snapshot = null;
+        expire(info.getTimestamp());
+    }
+
+    private void expire(long now) {
+        if (maxAgeMillis <= 0) {
+            return;
+        }
+        long oldest = now - maxAgeMillis;
+        while (size > 0 && ring[head].getTimestamp() < oldest) {
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+            snapshot = null;
+        }
+    }
+
+    synchronized AppStateManager.AccessInfo last() {
+        expire(System.currentTimeMillis());
+        return size == 0 ? null : ring[(head + size - 1) % ring.length];
+    }
+
+    /**
+     * Returns the retained entries, oldest first, preceded by the latest modification
+     * if it is no longer in the ring.
+     */
+    synchronized List<AppStateManager.AccessInfo> toList() {
+        expire(System.currentTimeMillis());
+        List<AppStateManager.AccessInfo> list = new ArrayList<>(size + 1);
+        boolean modificationRetained = false;
+        for (int i = 0; i < size; i++) {
+            AppStateManager.AccessInfo info = ring[(head + i) % ring.length];
+            modificationRetained |= info == lastModification;
+            list.add(info);
+        }
+        if (lastModification != null && !modificationRetained) {
+            list.add(0, lastModification);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the same as {@link #toList()}, as an immutable list shared until the
+     * history changes.
+     */
+    synchronized List<AppStateManager.AccessInfo> snapshot() {
+        expire(System.currentTimeMillis());
+        if (snapshot == null) {
+            snapshot = Collections.unmodifiableList(toList());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,84 @@
+package com.es2.project;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Base for generators that pick every character uniformly from a fixed alphabet.
+ * <p>
+ * Each thread has its own {@link SecureRandom} and draws random bytes from it in
+ * blocks, so generation neither contends on a shared generator nor calls it per
+ * character. Bytes are mapped to the alphabet by rejection sampling: bytes at or above
+ * the largest multiple of the alphabet size are discarded, which keeps every
+ * character equally likely. Large batches are generated in parallel.
+ */
+public abstract class AlphabetPasswordGenerator implements PasswordGenerator {
+    private static final int BLOCK_SIZE = 4096;
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private static final ThreadLocal<RandomBlock> RANDOM = ThreadLocal.withInitial(RandomBlock::new);
+
+    private final char[] alphabet;
+    private final int limit;
+
+    protected AlphabetPasswordGenerator(String alphabet) {
+        if (alphabet.isEmpty() || alphabet.length() > 256) {
+            throw new IllegalArgumentException("O alfabeto deve ter entre 1 e 256 caracteres");
+        }
+        this.alphabet = alphabet.toCharArray();
+        this.limit = 256 - (256 % alphabet.length());
+    }
+
+    @Override
+    public String generate(int length) {
+        return generate(length, RANDOM.get());
+    }
+
+    private String generate(int length, RandomBlock random) {
+        char[] password = new char[length];
+        for (int i = 0; i < length; i++) {
+            int b;
+            do {
+                b = random.nextByte();
+            } while (b >= limit);
+            password[i] = alphabet[b % alphabet.length];
+        }
+        return new String(password);
+    }
+
+    @Override
+    public List<String> generateBatch(int count, int length) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count não pode ser negativo");
+        }
+        String[] passwords = new String[count];
+        if (count < PARALLEL_THRESHOLD) {
+            RandomBlock random = RANDOM.get();
+            for (int i = 0; i < count; i++) {
+                passwords[i] = generate(length, random);
+            }
+        } else {
+            IntStream.range(0, count).parallel().forEach(i -> passwords[i] = generate(length, RANDOM.get()));
+        }
+        return Arrays.asList(passwords);
+    }
+
+    /**
+     * Random bytes of one thread, refilled a block at a time.
+     */
+    private static final class RandomBlock {
+        private final SecureRandom random = new SecureRandom();
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private int position = BLOCK_SIZE;
+
+        int nextByte() {
+            if (position == BLOCK_SIZE) {
+                random.nextBytes(block);
+                position = 0;
+            }
+            return block[position++] & 0xFF;
+        }
+    }
+}
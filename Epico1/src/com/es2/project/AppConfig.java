@@ -1,64 +1,297 @@
 package com.es2.project;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
 
 /**
  * Singleton class to store global application configurations.
+ * <p>
+ * The values live in an immutable {@link ConfigSnapshot} behind a volatile reference:
+ * getters never lock, and every change (a setter, {@link #reload()} or the file
+ * watcher started by {@code config.watch=true}) validates a complete new snapshot and
+ * swaps it in at once. Components subscribe with
+ * {@link #addListener(ConfigListener, String...)} to the properties they care about.
  */
 public class AppConfig {
     public static final String ALPHANUMERIC = "ALPHANUMERIC";
     public static final String SPECIAL = "SPECIAL";
-    private static AppConfig instance;
-    private String databaseUrl;
-    private String encryptionKey;
-    private int passwordLength;
-    private String folder_path;
+    public static final String STORAGE_FILE = "FILE";
+    public static final String STORAGE_INDEXED = "INDEXED";
+    public static final String STORAGE_LOG = "LOG";
+    public static final String STORAGE_MAPPED = "MAPPED";
+    public static final String STORAGE_SHARDED = "SHARDED";
+    public static final String CIPHER_POOL_LEGACY = "LEGACY";
+    public static final String CIPHER_POOL_CONCURRENT = "CONCURRENT";
+    private static final String ENCRYPTION_KEY = "encryption.key";
+
+    private static volatile AppConfig instance;
+    // só a instância global recarrega os singletons; as dos VaultContext usam listeners
+    private final boolean global;
+    private final String configFile;
+    private volatile ConfigSnapshot config;
+    private final List<Registration> listeners = new CopyOnWriteArrayList<>();
+    private Thread watcher;
+    private WatchService watchService;
 
     /**
      * Private constructor to initialize configurations.
      */
     private AppConfig() {
+        global = true;
+        configFile = System.getProperty("config.file", "config.properties");
         Properties props = new Properties();
-        String configFile = null;
-        try {
-            configFile = System.getProperty("config.file", "config.properties");
-            props.load(getClass().getClassLoader().getResourceAsStream(configFile));
-            this.databaseUrl = props.getProperty("database.url");
-            this.encryptionKey = props.getProperty("encryption.key");
-            this.passwordLength = Integer.parseInt(props.getProperty("password.length"));
-            this.folder_path = props.getProperty("folder.path");
-
-            validate();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(configFile)) {
+            props.load(input);
         } catch (IOException e) {
             throw new RuntimeException("Arquivo " + configFile + " não encontrado!", e);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Formato inválido para password.length", e);
+        }
+        this.config = new ConfigSnapshot(props);
+        applyMetricsSettings(config);
+        if (config.watch) {
+            startWatching();
         }
     }
 
+    private AppConfig(Properties props) {
+        global = false;
+        configFile = null;
+        this.config = new ConfigSnapshot(props);
+    }
+
     /**
-     * Validation of configurations values.
+     * Creates a configuration independent of the global instance, e.g. for a
+     * {@link VaultContext}. Changing it never touches the global components.
+     *
+     * @throws IllegalArgumentException if the properties are invalid.
      */
-    private void validate() {
-        if (passwordLength < 11) {
-            throw new IllegalArgumentException("passwordLength deve ser de pelo menos 11");
-        }
-        if (encryptionKey == null || encryptionKey.isBlank()) {
-            throw new IllegalArgumentException("encryptionKey não pode estar vazia");
+    public static AppConfig fromProperties(Properties props) {
+        return new AppConfig(props);
+    }
+
+    private static void applyMetricsSettings(ConfigSnapshot config) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.setEnabled(config.metricsEnabled);
+        if (config.metricsEnabled && config.metricsJmx) {
+            metrics.enableJmx();
         }
     }
 
     /**
-     * Returns the single instance of the configuration.
+     * Returns the single instance of the configuration. Lock-free once created.
      *
      * @return Single instance of AppConfig.
      */
-    public static synchronized AppConfig getInstance() {
-        if (instance == null) {
-            instance = new AppConfig();
+    public static AppConfig getInstance() {
+        AppConfig current = instance;
+        if (current == null) {
+            synchronized (AppConfig.class) {
+                current = instance;
+                if (current == null) {
+                    current = new AppConfig();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Registers a listener for changes to the given properties, or to any property if
+     * none is given. It is only called when one of them actually changed.
+     */
+    public void addListener(ConfigListener listener, String... keys) {
+        listeners.add(new Registration(listener, Set.of(keys)));
+    }
+
+    public void removeListener(ConfigListener listener) {
+        listeners.removeIf(registration -> registration.listener == listener);
+    }
+
+    /**
+     * Reads the configuration file again and applies what changed. An invalid file is
+     * rejected as a whole and the current configuration stays in place.
+     *
+     * @return Names of the properties that changed.
+     * @throws IllegalArgumentException if the new configuration is invalid.
+     */
+    public Set<String> reload() {
+        if (configFile == null) {
+            throw new IllegalStateException("Esta configuração não foi lida de um ficheiro");
+        }
+        Properties props = new Properties();
+        try (InputStream input = openConfigFile()) {
+            props.load(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler " + configFile, e);
+        }
+        ConfigSnapshot next = new ConfigSnapshot(props);
+        return apply(current -> next, true);
+    }
+
+    private InputStream openConfigFile() throws IOException {
+        Path path = configPath();
+        return path != null ? Files.newInputStream(path) : getClass().getClassLoader().getResourceAsStream(configFile);
+    }
+
+    /**
+     * Returns the file the configuration was loaded from, or null if it is not a plain
+     * file (e.g. inside a jar).
+     */
+    private Path configPath() {
+        if (configFile == null) {
+            return null;
+        }
+        URL url = getClass().getClassLoader().getResource(configFile);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Watches the configuration file and reloads it whenever it changes on disk.
+     *
+     * @throws IllegalStateException if the configuration is not a plain file.
+     */
+    public synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        Path file = configPath();
+        if (file == null) {
+            throw new IllegalStateException("Não é possível observar " + configFile + " fora do sistema de ficheiros");
+        }
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao observar " + file, e);
+        }
+        WatchService service = watchService;
+        watcher = new Thread(() -> watch(service, file), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao parar a observação da configuração: " + e.getMessage());
+        }
+        watcher = null;
+        watchService = null;
+    }
+
+    private void watch(WatchService service, Path file) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean touched = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        touched = true;
+                    }
+                }
+                key.reset();
+                if (touched) {
+                    try {
+                        reload();
+                    } catch (RuntimeException e) {
+                        // ficheiro a meio de ser escrito ou inválido: fica a configuração anterior
+                        System.err.println("Configuração rejeitada (" + file + "): " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // observação terminada
+        }
+    }
+
+    /**
+     * Swaps in the snapshot {@code update} derives from the current one, if it differs.
+     * Interested listeners can veto the change first; afterwards they are told what
+     * changed. The next snapshot is built under the lock, so concurrent updates of
+     * different properties never revert each other.
+     */
+    private synchronized Set<String> apply(UnaryOperator<ConfigSnapshot> update, boolean reloadStorage) {
+        ConfigSnapshot previous = config;
+        ConfigSnapshot next = update.apply(previous);
+        Set<String> changed = previous.diff(next);
+        if (changed.isEmpty()) {
+            return changed;
+        }
+        ConfigChange change = new ConfigChange(previous, next, changed);
+        for (Registration registration : listeners) {
+            if (registration.accepts(changed)) {
+                registration.listener.validate(change);
+            }
+        }
+        config = next;
+
+        if (global && changed.contains(ENCRYPTION_KEY)) {
+            CryptoManager.reload(next.encryptionKey);
+            if (reloadStorage) {
+                StorageManager.reloadInstance();
+            }
+        }
+        if (global && (changed.contains("metrics.enabled") || changed.contains("metrics.jmx"))) {
+            applyMetricsSettings(next);
+        }
+        for (Registration registration : listeners) {
+            if (registration.accepts(changed)) {
+                try {
+                    registration.listener.configChanged(change);
+                } catch (RuntimeException e) {
+                    System.err.println("Erro num listener de configuração: " + e.getMessage());
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static final class Registration {
+        final ConfigListener listener;
+        final Set<String> keys;
+
+        Registration(ConfigListener listener, Set<String> keys) {
+            this.listener = listener;
+            this.keys = keys;
+        }
+
+        boolean accepts(Set<String> changed) {
+            if (keys.isEmpty()) {
+                return true;
+            }
+            for (String key : changed) {
+                if (keys.contains(key)) {
+                    return true;
+                }
+            }
+            return false;
         }
-        return instance;
     }
 
     /**
@@ -67,7 +300,7 @@ public class AppConfig {
      * @return Database URL.
      */
     public String getDatabaseUrl() {
-        return databaseUrl;
+        return config.databaseUrl;
     }
 
     /**
@@ -76,7 +309,7 @@ public class AppConfig {
      * @return Encryption key.
      */
     public String getEncryptionKey() {
-        return encryptionKey;
+        return config.encryptionKey;
     }
 
     /**
@@ -85,7 +318,7 @@ public class AppConfig {
      * @return Default password length.
      */
     public int getPasswordLength() {
-        return passwordLength;
+        return config.passwordLength;
     }
 
     /**
@@ -93,23 +326,185 @@ public class AppConfig {
      *
      * @param newUrl The new database URL.
      */
-    public synchronized void setDatabaseUrl(String newUrl) {
-        this.databaseUrl = newUrl;
+    public void setDatabaseUrl(String newUrl) {
+        apply(current -> current.with("database.url", newUrl), true);
     }
 
     /**
-     * Sets the encryption key.
+     * Sets the encryption key. A different key reloads the crypto and the storage.
      *
      * @param newKey The new encryption key.
      * @throws IllegalArgumentException if the key is empty or null.
      */
-    public synchronized void setEncryptionKey(String newKey) {
+    public void setEncryptionKey(String newKey) {
         if (newKey == null || newKey.isBlank()) {
             throw new IllegalArgumentException("EncryptionKey não pode ser vazia!");
         }
-        this.encryptionKey = newKey;
-        CryptoManager.reload(newKey);
-        StorageManager.reloadInstance();
+        apply(current -> current.with(ENCRYPTION_KEY, newKey), true);
+    }
+
+    /**
+     * Gets how many accesses are kept per category in the access history.
+     *
+     * @return Maximum history entries per category.
+     */
+    public int getHistoryMaxEntries() {
+        return config.historyMaxEntries;
+    }
+
+    /**
+     * Gets how long an access stays in the history.
+     *
+     * @return Maximum age in milliseconds, 0 for no limit.
+     */
+    public long getHistoryMaxAgeMillis() {
+        return config.historyMaxAgeMillis;
+    }
+
+    /**
+     * Gets how many files the sharded storage spreads categories over.
+     *
+     * @return Number of shards.
+     */
+    public int getStorageShards() {
+        return config.storageShards;
+    }
+
+    /**
+     * Gets how many encrypted values the storage read cache keeps.
+     *
+     * @return Cache size, 0 when the cache is disabled.
+     */
+    public int getStorageCacheEntries() {
+        return config.storageCacheEntries;
+    }
+
+    /**
+     * Gets how long a value stays in the storage read cache.
+     *
+     * @return Time to live in milliseconds, 0 for no limit.
+     */
+    public long getStorageCacheTtlMillis() {
+        return config.storageCacheTtlMillis;
+    }
+
+    /**
+     * Checks whether per-layer metrics are recorded.
+     *
+     * @return true if metrics are enabled.
+     */
+    public boolean isMetricsEnabled() {
+        return config.metricsEnabled;
+    }
+
+    /**
+     * Gets the capacity of the security event buffer.
+     *
+     * @return Maximum buffered events.
+     */
+    public int getEventsBufferSize() {
+        return config.eventsBufferSize;
+    }
+
+    /**
+     * Gets how many security events are handed to the sinks at once.
+     *
+     * @return Maximum events per batch.
+     */
+    public int getEventsBatchSize() {
+        return config.eventsBatchSize;
+    }
+
+    /**
+     * Gets what happens to a security event published while the buffer is full.
+     *
+     * @return DROP_NEWEST, DROP_OLDEST or BLOCK.
+     */
+    public String getEventsDropPolicy() {
+        return config.eventsDropPolicy;
+    }
+
+    /**
+     * Gets where security events are delivered.
+     *
+     * @return CONSOLE, FILE or MEMORY.
+     */
+    public String getEventsSink() {
+        return config.eventsSink;
+    }
+
+    /**
+     * Gets the file security events are appended to when the sink is FILE.
+     *
+     * @return Events file path.
+     */
+    public String getEventsFile() {
+        return config.eventsFile;
+    }
+
+    /**
+     * Gets the directory where snapshots are persisted.
+     *
+     * @return Snapshot directory, empty to keep snapshots in memory only.
+     */
+    public String getSnapshotDir() {
+        return config.snapshotDir;
+    }
+
+    /**
+     * Gets how many snapshots a full base snapshot covers before the next one.
+     *
+     * @return Snapshots per base.
+     */
+    public int getSnapshotBaseInterval() {
+        return config.snapshotBaseInterval;
+    }
+
+    /**
+     * Gets how many vaults a {@link VaultHost} keeps open at most.
+     *
+     * @return Maximum open vaults.
+     */
+    public int getHostMaxOpenVaults() {
+        return config.hostMaxOpenVaults;
+    }
+
+    /**
+     * Gets how long a {@link VaultHost} keeps an unused vault open.
+     *
+     * @return Idle timeout in milliseconds, 0 to close vaults only when over capacity.
+     */
+    public long getHostIdleTimeoutMillis() {
+        return config.hostIdleTimeoutMillis;
+    }
+
+    /**
+     * Gets how many operations may run on this vault at the same time in a {@link VaultHost}.
+     *
+     * @return Maximum concurrent operations, 0 for no limit.
+     */
+    public int getVaultMaxConcurrent() {
+        return config.vaultMaxConcurrent;
+    }
+
+    /**
+     * Gets how many operations per second this vault accepts in a {@link VaultHost}.
+     *
+     * @return Maximum operations per second, 0 for no limit.
+     */
+    public int getVaultMaxOpsPerSecond() {
+        return config.vaultMaxOpsPerSecond;
+    }
+
+    /**
+     * Adopts the key produced by a completed {@link KeyRotationService} run. Unlike
+     * {@link #setEncryptionKey(String)} the storage is not reloaded, because every
+     * stored value has already been re-encrypted with this key.
+     *
+     * @param newKey The rotated encryption key.
+     */
+    void applyRotatedKey(String newKey) {
+        apply(current -> current.with(ENCRYPTION_KEY, newKey), false);
     }
 
     /**
@@ -118,15 +513,61 @@ public class AppConfig {
      * @param newLength The new password length.
      * @throws IllegalArgumentException if the length is less than 11.
      */
-    public synchronized void setPasswordLength(int newLength) {
+    public void setPasswordLength(int newLength) {
         if (newLength < 11) {
             throw new IllegalArgumentException("Tamanho mínimo: 11!");
         }
-        this.passwordLength = newLength;
+        apply(current -> current.with("password.length", Integer.toString(newLength)), true);
     }
 
     public String get_path(){
-        return folder_path;
+        return config.folderPath;
+    }
+
+    /**
+     * Gets the storage backend used by the default StorageManager.
+     *
+     * @return Storage mode ({@link #STORAGE_FILE}, {@link #STORAGE_INDEXED}, {@link #STORAGE_LOG},
+     * {@link #STORAGE_MAPPED} or {@link #STORAGE_SHARDED}).
+     */
+    public String getStorageMode() {
+        return config.storageMode;
+    }
+
+    /**
+     * Gets the interval between background flushes of the indexed storage.
+     *
+     * @return Flush interval in milliseconds.
+     */
+    public long getFlushIntervalMillis() {
+        return config.flushIntervalMillis;
+    }
+
+    /**
+     * Gets the cipher pool implementation used by CryptoManager.
+     *
+     * @return {@link #CIPHER_POOL_CONCURRENT} or {@link #CIPHER_POOL_LEGACY}.
+     */
+    public String getCipherPoolType() {
+        return config.cipherPoolType;
+    }
+
+    /**
+     * Gets the maximum number of ciphers lent at the same time.
+     *
+     * @return Cipher pool size.
+     */
+    public int getCipherPoolSize() {
+        return config.cipherPoolSize;
+    }
+
+    /**
+     * Gets how long a thread waits for a free cipher before failing.
+     *
+     * @return Timeout in milliseconds.
+     */
+    public long getCipherPoolTimeoutMillis() {
+        return config.cipherPoolTimeoutMillis;
     }
 
 
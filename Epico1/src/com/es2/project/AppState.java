@@ -1,26 +1,54 @@
 package com.es2.project;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Immutable snapshot of the application state. Snapshots taken through
+ * {@link AppStateManager#saveState()} share the history lists of categories that did
+ * not change between them instead of copying them.
+ */
 public class AppState {
     private final Map<String, List<AppStateManager.AccessInfo>> state;
     private final String databaseUrl;
     private final String encryptionKey;
+    private final String keyId;
     private final int passwordLength;
 
     public AppState(Map<String, List<AppStateManager.AccessInfo>> state, String databaseUrl, String encryptionKey, int passwordLength) {
-        this.state = new HashMap<>();
-        for (Map.Entry<String, List<AppStateManager.AccessInfo>> entry : state.entrySet()) {
-            this.state.put(entry.getKey(), new ArrayList<>(entry.getValue())); // deep copy das listas
-        }
+        this(state, databaseUrl, encryptionKey, passwordLength, false);
+    }
+
+    /**
+     * @param shared true if {@code state} is already immutable and can be kept without copying.
+     */
+    AppState(Map<String, List<AppStateManager.AccessInfo>> state, String databaseUrl, String encryptionKey, int passwordLength, boolean shared) {
+        this(state, databaseUrl, encryptionKey, encryptionKey == null ? null : CryptoManager.keyIdOf(encryptionKey), passwordLength, shared);
+    }
+
+    /**
+     * Snapshot read back from disk, which records only the id of the key its values
+     * were encrypted with, never the key itself.
+     */
+    AppState(Map<String, List<AppStateManager.AccessInfo>> state, String databaseUrl, String encryptionKey, String keyId, int passwordLength, boolean shared) {
+        this.state = shared ? state : copyOf(state);
         this.databaseUrl = databaseUrl;
         this.encryptionKey = encryptionKey;
+        this.keyId = keyId;
         this.passwordLength = passwordLength;
     }
 
+    private static Map<String, List<AppStateManager.AccessInfo>> copyOf(Map<String, List<AppStateManager.AccessInfo>> state) {
+        Map<String, List<AppStateManager.AccessInfo>> copy = new HashMap<>();
+        for (Map.Entry<String, List<AppStateManager.AccessInfo>> entry : state.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue()))); // deep copy das listas
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
     public Map<String, List<AppStateManager.AccessInfo>> getState() {
         return state;
     }
@@ -29,10 +57,20 @@ public class AppState {
         return databaseUrl;
     }
 
+    /**
+     * @return The encryption key, or null for a snapshot read back from disk.
+     */
     public String getEncryptionKey() {
         return encryptionKey;
     }
 
+    /**
+     * Id of the key the snapshot's values are encrypted with (see {@link CryptoManager#keyIdOf}).
+     */
+    String getKeyId() {
+        return keyId;
+    }
+
     public int getPasswordLength() {
         return passwordLength;
     }
@@ -1,29 +1,69 @@
 package com.es2.project;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 
-public class AppStateBackupService extends Object{
+public class AppStateBackupService extends Object implements AutoCloseable {
     AppStateManager stateManager;
     ArrayList<AppState> snapshots = new ArrayList<>();
+    // só usados quando os snapshots são persistidos em disco
+    private final SnapshotJournal journal;
+    private final int baseInterval;
+    private AppState previous;
+    private int sinceBase;
 
+    /**
+     * Keeps snapshots in memory, or in {@code snapshot.dir} when it is configured.
+     */
     public AppStateBackupService(AppStateManager stateManager) {
+        this(stateManager, AppConfig.getInstance().getSnapshotDir(), AppConfig.getInstance().getSnapshotBaseInterval());
+    }
+
+    /**
+     * Persists snapshots to {@code directory}: a full base every {@code baseInterval}
+     * snapshots and deltas of the changed categories in between. Snapshots already in
+     * the directory can be restored.
+     *
+     * @param directory Snapshot directory, or null/empty to keep them in memory only.
+     */
+    public AppStateBackupService(AppStateManager stateManager, String directory, int baseInterval) {
+        if (baseInterval <= 0) {
+            throw new IllegalArgumentException("baseInterval deve ser positivo");
+        }
         this.stateManager = stateManager;
+        this.baseInterval = baseInterval;
+        this.journal = directory == null || directory.isBlank() ? null : new SnapshotJournal(Paths.get(directory));
     }
 
-    public void takeSnapshot() {
+    public synchronized void takeSnapshot() {
         AppState snapshot = stateManager.saveState();
-        snapshots.add(snapshot);
+        if (journal == null) {
+            snapshots.add(snapshot);
+            return;
+        }
+        // o primeiro snapshot depois de abrir é sempre uma base
+        boolean base = previous == null || sinceBase >= baseInterval;
+        journal.append(snapshot, base ? null : previous);
+        previous = snapshot;
+        sinceBase = base ? 1 : sinceBase + 1;
     }
 
-    public void restoreSnapshot(int index) throws Exception {
-        if (index < 0 || index >= snapshots.size()) {
+    public synchronized void restoreSnapshot(int index) throws Exception {
+        if (index < 0 || index >= totalSnapshots()) {
             throw new Exception("Snapshot não existe!");
         }
-        AppState snapshot = snapshots.get(index);
+        AppState snapshot = journal == null ? snapshots.get(index) : journal.read(index);
         stateManager.restore(snapshot);
     }
 
-    public int totalSnapshots() {
-        return snapshots.size();
+    public synchronized int totalSnapshots() {
+        return journal == null ? snapshots.size() : journal.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (journal != null) {
+            journal.close();
+        }
     }
 }
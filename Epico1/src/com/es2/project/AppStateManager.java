@@ -1,18 +1,34 @@
 package com.es2.project;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class AppStateManager {
+    static final String MODIFICATION = "modification";
+    static final String CONSULTATION = "consultation";
+
+    /**
+     * One recorded access. Immutable, so snapshots can share instances.
+     */
     public static class AccessInfo {
-        String password;
-        String action;
+        final String password;
+        final String action;
+        final long timestamp;
 
         AccessInfo(String password, String action) {
+            this(password, action, System.currentTimeMillis());
+        }
+
+        AccessInfo(String password, String action, long timestamp) {
             this.password = password;
             this.action = action;
+            this.timestamp = timestamp;
         }
 
         public String getPassword() {
@@ -22,62 +38,161 @@ public class AppStateManager {
         public String getAction() {
             return action;
         }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
     }
 
-    private static AppStateManager instance;
-    private Map<String, List<AccessInfo>> accessedPasswords = new HashMap<>();
+    private static volatile AppStateManager instance;
+    private final Supplier<AppConfig> config;
+    private final Supplier<StorageManager> storageManager;
+    // uma história limitada por categoria; cada uma tem o seu próprio lock
+    private volatile Map<String, AccessHistory> accessedPasswords = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    // categorias alteradas desde o último snapshot
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private Map<String, List<AccessInfo>> lastSnapshot = Collections.emptyMap();
+
+    private AppStateManager() {
+        this(AppConfig::getInstance, StorageManager::getInstance);
+    }
+
+    /**
+     * History bound to a given configuration and storage, e.g. those of a
+     * {@link VaultContext}.
+     */
+    AppStateManager(Supplier<AppConfig> config, Supplier<StorageManager> storageManager) {
+        this.config = config;
+        this.storageManager = storageManager;
+        this.maxEntries = config.get().getHistoryMaxEntries();
+        this.maxAgeMillis = config.get().getHistoryMaxAgeMillis();
+    }
 
-    public static synchronized AppStateManager getInstance() {
-        if (instance == null) {
-            instance = new AppStateManager();
+    public static AppStateManager getInstance() {
+        AppStateManager current = instance;
+        if (current == null) {
+            synchronized (AppStateManager.class) {
+                current = instance;
+                if (current == null) {
+                    current = new AppStateManager();
+                    instance = current;
+                }
+            }
         }
-        return instance;
+        return current;
+    }
+
+    private AccessHistory newHistory(String categoryName) {
+        return new AccessHistory(maxEntries, maxAgeMillis);
     }
 
     public void recordAccess(String categoryName, String password, String action) {
-        AccessInfo accessInfo = new AccessInfo(password, action);
-        accessedPasswords.computeIfAbsent(categoryName, k -> new ArrayList<>())
+        accessedPasswords.computeIfAbsent(categoryName, this::newHistory)
                 .add(new AccessInfo(password, action));
-
+        changed.add(categoryName);
     }
 
     public List<AccessInfo> getAccessHistory(String categoryName) {
-        return accessedPasswords.getOrDefault(categoryName, new ArrayList<>());
+        AccessHistory history = accessedPasswords.get(categoryName);
+        return history == null ? new ArrayList<>() : history.toList();
     }
 
     public String getLastAccessedPassword(String categoryName) {
-        List<AccessInfo> history = accessedPasswords.get(categoryName);
-        if (history == null || history.isEmpty()) return null;
-        return history.get(history.size() - 1).password;
+        AccessHistory history = accessedPasswords.get(categoryName);
+        AccessInfo last = history == null ? null : history.last();
+        return last == null ? null : last.password;
     }
 
     public String getLastAccessedAction(String categoryName) {
-        List<AccessInfo> history = accessedPasswords.get(categoryName);
-        if (history == null || history.isEmpty()) return null;
-        return history.get(history.size() - 1).action;
+        AccessHistory history = accessedPasswords.get(categoryName);
+        AccessInfo last = history == null ? null : history.last();
+        return last == null ? null : last.action;
     }
 
 
     public AppState saveState() {
-        AppConfig config = AppConfig.getInstance();
-        return new AppState(accessedPasswords, config.getDatabaseUrl(), config.getEncryptionKey(), config.getPasswordLength());
+        AppConfig current = config.get();
+        return new AppState(snapshotHistory(), current.getDatabaseUrl(), current.getEncryptionKey(), current.getPasswordLength(), true);
     }
 
+    /**
+     * Puts back the history, configuration and passwords of a snapshot. A snapshot read
+     * back from disk carries no key: the configured key is kept, and it must be the one
+     * the snapshot's values were encrypted with.
+     *
+     * @throws IllegalStateException if the snapshot was taken under another key.
+     */
     public void restore(AppState state) {
-        this.accessedPasswords = state.getState();
+        AppConfig current = config.get();
+        if (state.getEncryptionKey() == null && state.getKeyId() != null
+                && !state.getKeyId().equals(CryptoManager.keyIdOf(current.getEncryptionKey()))) {
+            throw new IllegalStateException("O snapshot foi cifrado com outra chave");
+        }
+        Map<String, AccessHistory> restored = new ConcurrentHashMap<>();
+        for (Map.Entry<String, List<AccessInfo>> entry : state.getState().entrySet()) {
+            AccessHistory history = newHistory(entry.getKey());
+            for (AccessInfo info : entry.getValue()) {
+                history.add(info);
+            }
+            restored.put(entry.getKey(), history);
+        }
+        synchronized (this) {
+            this.accessedPasswords = restored;
+            this.lastSnapshot = Collections.emptyMap();
+            changed.clear();
+            changed.addAll(restored.keySet());
+        }
 
-        AppConfig config = AppConfig.getInstance();
-        config.setDatabaseUrl(state.getDatabaseUrl());
-        config.setEncryptionKey(state.getEncryptionKey());
-        config.setPasswordLength(state.getPasswordLength());
+        // uma chave diferente recarrega a criptografia através da configuração
+        current.setDatabaseUrl(state.getDatabaseUrl());
+        if (state.getEncryptionKey() != null) {
+            current.setEncryptionKey(state.getEncryptionKey());
+        }
+        current.setPasswordLength(state.getPasswordLength());
 
-        CryptoManager.reload(state.getEncryptionKey());
+        storageManager.get().restorePasswordsFromState(state.getState());
+    }
 
-        StorageManager.getInstance().restorePasswordsFromState(this.accessedPasswords);
+    /**
+     * Returns an immutable view of every category's history, reusing the previous one
+     * for categories that did not change. Only changed categories are copied, so the
+     * snapshots taken by {@link AppStateBackupService} share unchanged lists.
+     */
+    private synchronized Map<String, List<AccessInfo>> snapshotHistory() {
+        // com limite de idade, uma categoria pode mudar sem novos acessos
+        Iterable<String> candidates = maxAgeMillis > 0 ? accessedPasswords.keySet() : changed;
+        Map<String, List<AccessInfo>> next = null;
+        for (String categoryName : candidates) {
+            changed.remove(categoryName);
+            AccessHistory history = accessedPasswords.get(categoryName);
+            if (history == null) {
+                continue;
+            }
+            List<AccessInfo> list = history.snapshot();
+            if (list != lastSnapshot.get(categoryName)) {
+                if (next == null) {
+                    next = new HashMap<>(lastSnapshot);
+                }
+                next.put(categoryName, list);
+            }
+        }
+        if (next != null) {
+            lastSnapshot = Collections.unmodifiableMap(next);
+        }
+        return lastSnapshot;
     }
 
+    /**
+     * Returns a copy of the retained history of every category.
+     */
     public Map<String, List<AccessInfo>> getAccessedInfoMap() {
-        return accessedPasswords;
+        Map<String, List<AccessInfo>> copy = new HashMap<>();
+        for (Map.Entry<String, AccessHistory> entry : accessedPasswords.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().toList());
+        }
+        return copy;
     }
 
     public void displayList(String categoryName) {
@@ -87,4 +202,4 @@ public class AppStateManager {
             System.out.println("Password: " + info.getPassword() + " | Ação: " + info.getAction());
         }
     }
-}
+}
\ No newline at end of file
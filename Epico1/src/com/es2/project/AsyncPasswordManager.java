@@ -0,0 +1,27 @@
+package com.es2.project;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link PasswordManager}: every operation returns at once
+ * and completes its future when the storage work is done.
+ */
+public interface AsyncPasswordManager {
+    CompletableFuture<Void> savePassword(String category, String password);
+    CompletableFuture<String> getPassword(String category);
+    CompletableFuture<Void> saveAll(Map<String, String> passwords);
+    CompletableFuture<Map<String, String>> loadAll(Collection<String> categories);
+
+    /**
+     * Wraps this manager with a blocking decorator such as {@link MFADecorator} or
+     * {@link SecurityAlertDecorator}, e.g. {@code async.decorate(MFADecorator::new)}.
+     * The decorator runs on a virtual thread, which waits for this manager's futures
+     * without holding a platform thread.
+     */
+    default AsyncPasswordManager decorate(Function<PasswordManager, ? extends PasswordManager> decorator) {
+        return new VirtualThreadPasswordManager(decorator.apply(new BlockingPasswordManager(this)));
+    }
+}
@@ -1,5 +1,8 @@
 package com.es2.project;
 
+import java.util.Collection;
+import java.util.Map;
+
 public class BasicPasswordManager implements PasswordManager {
     private StorageManager storage;
 
@@ -16,4 +19,14 @@ public class BasicPasswordManager implements PasswordManager {
     public String getPassword(String category) {
         return storage.loadPassword(category);
     }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        storage.saveAll(passwords);
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categories) {
+        return storage.loadAll(categories);
+    }
 }
\ No newline at end of file
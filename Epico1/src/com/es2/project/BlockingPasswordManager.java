@@ -0,0 +1,54 @@
+package com.es2.project;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Presents an {@link AsyncPasswordManager} as a blocking {@link PasswordManager}, so
+ * the existing decorators can wrap it. Each call waits for the future; failures are
+ * rethrown as they were raised, not wrapped in a {@link CompletionException}.
+ */
+public class BlockingPasswordManager implements PasswordManager {
+    private final AsyncPasswordManager async;
+
+    public BlockingPasswordManager(AsyncPasswordManager async) {
+        this.async = async;
+    }
+
+    @Override
+    public void savePassword(String category, String password) {
+        await(async.savePassword(category, password));
+    }
+
+    @Override
+    public String getPassword(String category) {
+        return await(async.getPassword(category));
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        await(async.saveAll(passwords));
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categories) {
+        return await(async.loadAll(categories));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.es2.project;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 conversions between caller-supplied arrays, used by the {@code char[]} paths of
+ * {@link CryptoManager}. The JDK coders work directly on the wrapped arrays, so no
+ * intermediate {@code String} or array holding the plaintext is created. Coders and
+ * buffer views are kept per thread, and a view is rewrapped only when the thread
+ * passes a different array, so steady-state calls do not allocate.
+ */
+final class BufferCodec {
+    private static final ThreadLocal<Coders> CODERS = ThreadLocal.withInitial(Coders::new);
+
+    // os coders guardam estado entre chamadas: um conjunto por thread
+    private static final class Coders {
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        byte[] bytes;
+        ByteBuffer byteView;
+        char[] chars;
+        CharBuffer charView;
+
+        ByteBuffer bytes(byte[] array, int from, int to) {
+            if (bytes != array) {
+                bytes = array;
+                byteView = ByteBuffer.wrap(array);
+            }
+            byteView.clear();
+            byteView.limit(to).position(from);
+            return byteView;
+        }
+
+        CharBuffer chars(char[] array, int from, int to) {
+            if (chars != array) {
+                chars = array;
+                charView = CharBuffer.wrap(array);
+            }
+            charView.clear();
+            charView.limit(to).position(from);
+            return charView;
+        }
+    }
+
+    private BufferCodec() {
+    }
+
+    /**
+     * Worst-case number of UTF-8 bytes for {@code chars} UTF-16 chars.
+     */
+    static int maxUtf8Length(int chars) {
+        return chars * 3;
+    }
+
+    /**
+     * Encodes chars as UTF-8. Unpaired surrogates become '?', as in {@link String#getBytes}.
+     *
+     * @return Number of bytes written.
+     */
+    static int encodeUtf8(char[] src, int from, int to, byte[] dst) {
+        Coders coders = CODERS.get();
+        CharsetEncoder encoder = coders.encoder.reset();
+        CharBuffer in = coders.chars(src, from, to);
+        ByteBuffer out = coders.bytes(dst, 0, dst.length);
+        check(encoder.encode(in, out, true));
+        check(encoder.flush(out));
+        return out.position();
+    }
+
+    /**
+     * Decodes UTF-8 bytes into chars. Malformed input becomes U+FFFD.
+     *
+     * @return Number of chars written; never more than {@code to - from}.
+     */
+    static int decodeUtf8(byte[] src, int from, int to, char[] dst) {
+        Coders coders = CODERS.get();
+        CharsetDecoder decoder = coders.decoder.reset();
+        ByteBuffer in = coders.bytes(src, from, to);
+        CharBuffer out = coders.chars(dst, 0, dst.length);
+        check(decoder.decode(in, out, true));
+        check(decoder.flush(out));
+        return out.position();
+    }
+
+    private static void check(CoderResult result) {
+        if (result.isOverflow()) {
+            throw new IllegalArgumentException("Buffer de destino demasiado pequeno");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.es2.project;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches decrypted passwords read through the wrapped manager, so hot categories are
+ * not read from storage and decrypted on every {@link #getPassword(String)}.
+ * <p>
+ * Writes through this decorator invalidate the affected categories. Writes that bypass
+ * it (another manager, a key rotation, a snapshot restore) are only seen once the
+ * cached value expires, so {@code ttlMillis} bounds how stale a read can be. Cache hits
+ * do not reach {@link StorageManager} and are therefore not recorded in the access
+ * history. When plaintext must not be kept in memory, use {@link CachingPasswordStorage}
+ * instead, which caches the ciphertext.
+ */
+public class CachingDecorator extends PasswordManagerDecorator {
+    private final ReadCache<String, String> cache;
+
+    /**
+     * @param maxEntries Maximum number of cached passwords.
+     * @param ttlMillis  How long a password stays cached, 0 for no limit.
+     */
+    public CachingDecorator(PasswordManager toDecorate, int maxEntries, long ttlMillis) {
+        super(toDecorate);
+        this.cache = new ReadCache<>(maxEntries, ttlMillis);
+    }
+
+    @Override
+    public void savePassword(String category, String password) {
+        cache.invalidate(category);
+        try {
+            super.savePassword(category, password);
+        } finally {
+            cache.invalidate(category);
+        }
+    }
+
+    @Override
+    public String getPassword(String category) {
+        return cache.get(category, super::getPassword);
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        cache.invalidateAll(passwords.keySet());
+        try {
+            super.saveAll(passwords);
+        } finally {
+            cache.invalidateAll(passwords.keySet());
+        }
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categories) {
+        Map<String, String> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String category : categories) {
+            String password = cache.getIfPresent(category);
+            if (password != null) {
+                result.put(category, password);
+            } else {
+                missing.add(category);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = cache.generation();
+            Map<String, String> loaded = super.loadAll(missing);
+            for (Map.Entry<String, String> entry : loaded.entrySet()) {
+                cache.putIfUnchanged(entry.getKey(), entry.getValue(), generation);
+            }
+            // mantém a ordem pedida
+            Map<String, String> ordered = new LinkedHashMap<>();
+            for (String category : categories) {
+                String password = result.containsKey(category) ? result.get(category) : loaded.get(category);
+                if (password != null) {
+                    ordered.put(category, password);
+                }
+            }
+            result = ordered;
+        }
+        return result;
+    }
+
+    /**
+     * Drops every cached password.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,126 @@
+package com.es2.project;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches the stored (encrypted) values of another {@link PasswordStorage}. Hot
+ * categories skip the storage read but are still decrypted on every access, so no
+ * plaintext is kept in memory. Every write goes through this layer, key rotations and
+ * restores included, so cached values are never stale.
+ */
+public class CachingPasswordStorage implements PasswordStorage {
+    private final PasswordStorage delegate;
+    private final ReadCache<String, String> cache;
+
+    /**
+     * @param maxEntries Maximum number of cached values.
+     * @param ttlMillis  How long a value stays cached, 0 for no limit.
+     */
+    public CachingPasswordStorage(PasswordStorage delegate, int maxEntries, long ttlMillis) {
+        this.delegate = delegate;
+        this.cache = new ReadCache<>(maxEntries, ttlMillis);
+    }
+
+    @Override
+    public void savePassword(String categoryName, String password) {
+        cache.invalidate(categoryName);
+        try {
+            delegate.savePassword(categoryName, password);
+        } finally {
+            cache.invalidate(categoryName);
+        }
+    }
+
+    @Override
+    public String loadPassword(String categoryName) {
+        return cache.get(categoryName, delegate::loadPassword);
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        cache.invalidateAll(passwords.keySet());
+        try {
+            delegate.saveAll(passwords);
+        } finally {
+            cache.invalidateAll(passwords.keySet());
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> categoryNames) {
+        cache.invalidateAll(categoryNames);
+        try {
+            delegate.deleteAll(categoryNames);
+        } finally {
+            cache.invalidateAll(categoryNames);
+        }
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categoryNames) {
+        Map<String, String> cached = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : categoryNames) {
+            String value = cache.getIfPresent(name);
+            if (value != null) {
+                cached.put(name, value);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (missing.isEmpty()) {
+            return cached;
+        }
+        long generation = cache.generation();
+        Map<String, String> loaded = delegate.loadAll(missing);
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String name : categoryNames) {
+            String value = cached.get(name);
+            if (value == null) {
+                value = loaded.get(name);
+                cache.putIfUnchanged(name, value, generation);
+            }
+            if (value != null) {
+                result.put(name, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> categoryNames() {
+        return delegate.categoryNames();
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        cache.clear();
+        delegate.close();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
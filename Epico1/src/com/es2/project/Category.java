@@ -1,11 +1,18 @@
 package com.es2.project;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 public abstract class Category {
     private String name;
     private StorageManager storageManager;
+    private volatile String storageKey;
+    private volatile SubCategory parent;
+    volatile CategoryTree tree;
 
     public Category(String name, StorageManager storageManager) {
         this.name = name;
+        this.storageKey = name;
         this.storageManager = storageManager;
     }
 
@@ -14,18 +21,62 @@ public abstract class Category {
         return name;
     }
 
+    /**
+     * Key of this category's password in the vault: the name, or a stable node ID for
+     * categories managed by a {@link CategoryHierarchy}.
+     */
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    public SubCategory getParent() {
+        return parent;
+    }
+
+    void setParent(SubCategory parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Returns the names from the root down to this category, separated by
+     * {@link CategoryTree#SEPARATOR} (e.g. {@code Estudantes/turmaA}).
+     */
+    public String getPath() {
+        // iterativo: hierarquias profundas não esgotam a pilha
+        Deque<String> names = new ArrayDeque<>();
+        for (Category node = this; node != null; node = node.parent) {
+            names.push(node.name);
+        }
+        return String.join(CategoryTree.SEPARATOR, names);
+    }
+
+    protected StorageManager getStorageManager() {
+        return storageManager;
+    }
+
 
     //Bridge
     public void setPassword(String password) {
-        storageManager.savePassword(name, password);
+        storageManager.savePassword(storageKey, password);
     }
 
     //bridge
     public String getPassword() {
-        return storageManager.loadPassword(name);
+        return storageManager.loadPassword(storageKey);
+    }
+
+    /**
+     * Line printed by {@link #display()} for this category.
+     */
+    protected String describe(String password) {
+        return getName() + " | password " + password;
     }
 
 
     //composite
     public abstract void display();
-}
\ No newline at end of file
+}
@@ -0,0 +1,266 @@
+package com.es2.project;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Persistent category hierarchy. Every category gets a stable node ID and its password
+ * is stored under that ID instead of its name, so categories with the same name in
+ * different branches no longer collide, and moving or renaming a branch never touches
+ * the vault.
+ * <p>
+ * The structure is kept in its own file (one {@code id=parentId|type|name} line per
+ * node), rewritten atomically after every change, or once per {@link #batch(Consumer)}
+ * when building large hierarchies. Subtree operations cost one batched
+ * storage call each: {@link #delete(String)} one {@link StorageManager#deleteAll},
+ * {@link #rekey(String)} one read and one write, {@link #export(String, String)} one
+ * read. Changes must go through this class to be persisted; the {@link CategoryTree}
+ * it exposes is for lookups and traversal.
+ */
+public class CategoryHierarchy {
+    static final String KEY_PREFIX = "#";
+    private static final String NEXT_ID = "next.id";
+    private static final String SUB = "S";
+    private static final String LEAF = "L";
+
+    private final Path file;
+    private final StorageManager storageManager;
+    private final CategoryTree tree;
+    private final Map<Long, Category> byId = new HashMap<>();
+    private long nextId = 1;
+    // dentro de batch() as alterações só marcam a hierarquia para gravar no fim
+    private int batchDepth = 0;
+    private boolean dirty = false;
+
+    /**
+     * Opens the hierarchy stored in {@code file}, or starts an empty one if the file
+     * does not exist yet.
+     */
+    public CategoryHierarchy(String file, StorageManager storageManager) {
+        this.file = Paths.get(file);
+        this.storageManager = storageManager;
+        this.tree = new CategoryTree(storageManager);
+        load();
+    }
+
+    private void load() {
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            props.load(input);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao carregar a hierarquia de categorias de " + file, e);
+        }
+        nextId = Long.parseLong(props.getProperty(NEXT_ID, "1"));
+
+        // pais antes dos filhos; irmãos por ordem de criação
+        Map<Long, List<Long>> children = new HashMap<>();
+        Map<Long, String[]> nodes = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.equals(NEXT_ID)) {
+                continue;
+            }
+            long id = Long.parseLong(key);
+            String[] fields = props.getProperty(key).split("\\|", 3);
+            nodes.put(id, fields);
+            long parentId = fields[0].isEmpty() ? 0 : Long.parseLong(fields[0]);
+            children.computeIfAbsent(parentId, k -> new ArrayList<>()).add(id);
+        }
+        Deque<Long> pending = new ArrayDeque<>();
+        pending.add(0L);
+        while (!pending.isEmpty()) {
+            long parentId = pending.poll();
+            for (long id : children.getOrDefault(parentId, List.of())) {
+                String[] fields = nodes.get(id);
+                Category category = create(id, fields[1], fields[2]);
+                tree.add(parentId == 0 ? null : byId.get(parentId).getPath(), category);
+                pending.add(id);
+            }
+        }
+    }
+
+    private Category create(long id, String type, String name) {
+        Category category = SUB.equals(type)
+                ? new SubCategory(name, storageManager)
+                : new LeafCategory(name, storageManager);
+        category.setStorageKey(KEY_PREFIX + id);
+        byId.put(id, category);
+        return category;
+    }
+
+    public CategoryTree getTree() {
+        return tree;
+    }
+
+    public synchronized SubCategory addSubCategory(String parentPath, String name) {
+        return (SubCategory) add(parentPath, SUB, name);
+    }
+
+    public synchronized LeafCategory addLeaf(String parentPath, String name) {
+        return (LeafCategory) add(parentPath, LEAF, name);
+    }
+
+    private Category add(String parentPath, String type, String name) {
+        long id = nextId;
+        Category category = create(id, type, name);
+        try {
+            tree.add(parentPath, category);
+        } catch (RuntimeException e) {
+            byId.remove(id);
+            throw e;
+        }
+        nextId++;
+        persist();
+        return category;
+    }
+
+    /**
+     * Applies several changes with a single rewrite of the hierarchy file, e.g. to
+     * build a large hierarchy: {@code hierarchy.batch(h -> { h.addSubCategory(...); ... })}.
+     * The file is written when {@code changes} returns, or throws, so it always matches
+     * the hierarchy in memory. {@link #delete(String)} still writes before touching the
+     * storage.
+     */
+    public synchronized void batch(Consumer<CategoryHierarchy> changes) {
+        batchDepth++;
+        try {
+            changes.accept(this);
+        } finally {
+            if (--batchDepth == 0 && dirty) {
+                persistNow();
+            }
+        }
+    }
+
+    public synchronized Category findById(long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Returns the stable ID of the category at {@code path}.
+     */
+    public synchronized long idOf(String path) {
+        return id(require(path));
+    }
+
+    /**
+     * Moves a subtree under {@code newParentPath} ({@code null} to make it a root).
+     * Only the hierarchy file is rewritten; passwords stay where they are.
+     */
+    public synchronized void move(String path, String newParentPath) {
+        tree.move(path, newParentPath);
+        persist();
+    }
+
+    /**
+     * Deletes a subtree and its passwords, the latter with a single storage write.
+     *
+     * @return Number of categories deleted.
+     */
+    public synchronized int delete(String path) {
+        List<Category> nodes = tree.subtree(path);
+        tree.remove(path);
+        for (Category node : nodes) {
+            byId.remove(id(node));
+        }
+        // a hierarquia primeiro: um crash a seguir só deixa passwords órfãs, nunca nós sem password
+        persistNow();
+        storageManager.deleteAll(keysOf(nodes));
+        return nodes.size();
+    }
+
+    /**
+     * Re-encrypts the passwords of a subtree with the key ring's current write key,
+     * reading and writing them in one batch each. Values already under that key are
+     * left alone.
+     *
+     * @return Number of passwords re-encrypted.
+     */
+    public synchronized int rekey(String path) {
+        return storageManager.reencrypt(keysOf(tree.subtree(path)));
+    }
+
+    /**
+     * Writes the passwords of a subtree, still encrypted, to a properties file keyed by
+     * category path, reading them with a single storage call.
+     *
+     * @return Number of passwords exported.
+     */
+    public synchronized int export(String path, String target) {
+        List<Category> nodes = tree.subtree(path);
+        Map<String, String> stored = storageManager.loadEncrypted(keysOf(nodes));
+        Properties props = new Properties();
+        for (Category node : nodes) {
+            String password = stored.get(node.getStorageKey());
+            if (password != null) {
+                props.setProperty(node.getPath(), password);
+            }
+        }
+        write(Paths.get(target), props, "Passwords exportadas de " + path);
+        return props.size();
+    }
+
+    private Category require(String path) {
+        Category category = tree.find(path);
+        if (category == null) {
+            throw new IllegalArgumentException("Categoria inexistente: " + path);
+        }
+        return category;
+    }
+
+    private static long id(Category category) {
+        return Long.parseLong(category.getStorageKey().substring(KEY_PREFIX.length()));
+    }
+
+    private static List<String> keysOf(List<Category> nodes) {
+        List<String> keys = new ArrayList<>(nodes.size());
+        for (Category node : nodes) {
+            keys.add(node.getStorageKey());
+        }
+        return keys;
+    }
+
+    private void persist() {
+        if (batchDepth > 0) {
+            dirty = true;
+            return;
+        }
+        persistNow();
+    }
+
+    private void persistNow() {
+        dirty = false;
+        Properties props = new Properties();
+        props.setProperty(NEXT_ID, Long.toString(nextId));
+        for (Map.Entry<Long, Category> entry : byId.entrySet()) {
+            Category category = entry.getValue();
+            SubCategory parent = category.getParent();
+            String type = category instanceof SubCategory ? SUB : LEAF;
+            props.setProperty(Long.toString(entry.getKey()),
+                    (parent == null ? "" : Long.toString(id(parent))) + "|" + type + "|" + category.getName());
+        }
+        write(file, props, "Hierarquia de categorias");
+    }
+
+    private static void write(Path path, Properties props, String comment) {
+        try {
+            FilePasswordStorage.replaceAtomically(path, props, comment);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao escrever " + path, e);
+        }
+    }
+}
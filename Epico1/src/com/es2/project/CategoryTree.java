@@ -0,0 +1,367 @@
+package com.es2.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Registry of a category hierarchy, indexed by path (e.g. {@code Estudantes/turmaA}) so
+ * any category is found without walking the tree. Children added to a registered
+ * {@link SubCategory} are indexed as well.
+ * <p>
+ * Building and traversing the tree never touches the vault. Passwords are loaded only
+ * when a subtree is resolved, with one batched storage read and decrypt per
+ * {@value #BATCH_SIZE} categories, and the batches are processed in parallel.
+ * Passwords are stored under each category's {@link Category#getStorageKey() storage
+ * key}. This registry lives in memory; {@link CategoryHierarchy} persists it.
+ * <p>
+ * Structural changes ({@link #add}, {@link #move}, {@link #remove} and children added
+ * to or removed from a registered {@link SubCategory}) are serialized, so the path
+ * checks and the index update happen atomically. Lookups and visits do not block.
+ */
+public class CategoryTree {
+    public static final String SEPARATOR = "/";
+    static final int BATCH_SIZE = 4096;
+    static final int FORK_DEPTH = 32;
+
+    private final StorageManager storageManager;
+    private final Map<String, Category> roots = new ConcurrentHashMap<>();
+    private final Map<String, Category> index = new ConcurrentHashMap<>();
+    private final Object structure = new Object();
+
+    public CategoryTree(StorageManager storageManager) {
+        this.storageManager = storageManager;
+    }
+
+    /**
+     * Creates a {@link SubCategory} under {@code parentPath} ({@code null} for a root).
+     */
+    public SubCategory addSubCategory(String parentPath, String name) {
+        SubCategory category = new SubCategory(name, storageManager);
+        add(parentPath, category);
+        return category;
+    }
+
+    /**
+     * Creates a {@link LeafCategory} under {@code parentPath} ({@code null} for a root).
+     */
+    public LeafCategory addLeaf(String parentPath, String name) {
+        LeafCategory category = new LeafCategory(name, storageManager);
+        add(parentPath, category);
+        return category;
+    }
+
+    /**
+     * Registers a category, with any children it already has, under {@code parentPath}
+     * ({@code null} for a root).
+     */
+    public void add(String parentPath, Category category) {
+        String name = category.getName();
+        if (name == null || name.isEmpty() || name.contains(SEPARATOR)) {
+            throw new IllegalArgumentException("Nome de categoria inválido: " + name);
+        }
+        synchronized (structure) {
+            if (parentPath == null) {
+                if (roots.putIfAbsent(name, category) != null) {
+                    throw new IllegalArgumentException("Já existe a categoria " + name);
+                }
+                attach(category);
+                return;
+            }
+            Category parent = index.get(parentPath);
+            if (!(parent instanceof SubCategory)) {
+                throw new IllegalArgumentException("Categoria pai inexistente ou sem filhos: " + parentPath);
+            }
+            if (index.containsKey(parentPath + SEPARATOR + name)) {
+                throw new IllegalArgumentException("Já existe a categoria " + parentPath + SEPARATOR + name);
+            }
+            ((SubCategory) parent).addChild(category);
+        }
+    }
+
+    /**
+     * Finds a category by path.
+     *
+     * @return The category, or null if there is none at that path.
+     */
+    public Category find(String path) {
+        return index.get(path);
+    }
+
+    /**
+     * Removes a category and its subtree from the hierarchy. Passwords stay in the vault.
+     *
+     * @return false if there was no category at that path.
+     */
+    public boolean remove(String path) {
+        synchronized (structure) {
+            Category category = index.get(path);
+            if (category == null) {
+                return false;
+            }
+            SubCategory parent = category.getParent();
+            if (parent == null) {
+                roots.remove(category.getName(), category);
+                detach(category);
+            } else {
+                parent.removeChild(category);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Moves a category and its subtree under {@code newParentPath} ({@code null} to make
+     * it a root). Passwords are not touched.
+     */
+    public void move(String path, String newParentPath) {
+        synchronized (structure) {
+            Category category = index.get(path);
+            if (category == null) {
+                throw new IllegalArgumentException("Categoria inexistente: " + path);
+            }
+            String newPath = newParentPath == null ? category.getName() : newParentPath + SEPARATOR + category.getName();
+            if (newParentPath != null) {
+                if (!(index.get(newParentPath) instanceof SubCategory)) {
+                    throw new IllegalArgumentException("Categoria pai inexistente ou sem filhos: " + newParentPath);
+                }
+                if (newParentPath.equals(path) || newParentPath.startsWith(path + SEPARATOR)) {
+                    throw new IllegalArgumentException("Não é possível mover " + path + " para dentro de si própria");
+                }
+            }
+            if (newPath.equals(path)) {
+                return;
+            }
+            if (index.containsKey(newPath)) {
+                throw new IllegalArgumentException("Já existe a categoria " + newPath);
+            }
+            SubCategory oldParent = category.getParent();
+            if (oldParent == null) {
+                roots.remove(category.getName(), category);
+                detach(category);
+            } else {
+                oldParent.removeChild(category);
+            }
+            if (newParentPath == null) {
+                roots.put(category.getName(), category);
+                attach(category);
+            } else {
+                ((SubCategory) index.get(newParentPath)).addChild(category);
+            }
+        }
+    }
+
+    /**
+     * Returns the subtree at {@code path}, parents before children.
+     */
+    public List<Category> subtree(String path) {
+        List<Category> nodes = new ArrayList<>();
+        for (Category start : subtreeRoots(path)) {
+            collect(start, nodes);
+        }
+        return nodes;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    void attach(Category category) {
+        synchronized (structure) {
+            Deque<Category> pending = new ArrayDeque<>();
+            Deque<String> paths = new ArrayDeque<>();
+            pending.push(category);
+            paths.push(category.getPath());
+            while (!pending.isEmpty()) {
+                Category node = pending.pop();
+                String path = paths.pop();
+                node.tree = this;
+                index.put(path, node);
+                if (node instanceof SubCategory) {
+                    for (Category child : ((SubCategory) node).getChildren()) {
+                        pending.push(child);
+                        paths.push(path + SEPARATOR + child.getName());
+                    }
+                }
+            }
+        }
+    }
+
+    void detach(Category category) {
+        synchronized (structure) {
+            List<Category> nodes = new ArrayList<>();
+            List<String> paths = new ArrayList<>();
+            collect(category, category.getPath(), nodes, paths);
+            for (int i = 0; i < nodes.size(); i++) {
+                index.remove(paths.get(i), nodes.get(i));
+                nodes.get(i).tree = null;
+            }
+        }
+    }
+
+    /**
+     * Visits every category of the subtree at {@code path} ({@code null} for the whole
+     * tree) in parallel, without loading any password. Subtrees are forked down to
+     * {@value #FORK_DEPTH} levels and walked iteratively below that, so deep chains do
+     * not exhaust the stack.
+     */
+    public void visit(String path, CategoryVisitor visitor) {
+        List<Category> starts = subtreeRoots(path);
+        List<VisitTask> tasks = new ArrayList<>(starts.size());
+        for (Category start : starts) {
+            tasks.add(new VisitTask(start, visitor, 0));
+        }
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * Loads the passwords of the subtree at {@code path} ({@code null} for the whole
+     * tree) and hands each category with its password to {@code consumer}. Only one
+     * batch per worker is held in memory; the consumer is called from several threads.
+     */
+    public void visitPasswords(String path, BiConsumer<Category, String> consumer) {
+        List<Category> nodes = subtree(path);
+        int batches = (nodes.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        IntStream.range(0, batches).parallel().forEach(b -> {
+            List<Category> batch = nodes.subList(b * BATCH_SIZE, Math.min(nodes.size(), (b + 1) * BATCH_SIZE));
+            Map<String, String> passwords = loadBatch(batch);
+            for (Category node : batch) {
+                consumer.accept(node, passwords.get(node.getStorageKey()));
+            }
+        });
+    }
+
+    /**
+     * Loads the passwords of the subtree at {@code path} ({@code null} for the whole
+     * tree) in batches.
+     *
+     * @return Category path to plain password, parents before children; categories
+     * without a password are left out.
+     */
+    public Map<String, String> resolvePasswords(String path) {
+        List<Category> nodes = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        for (Category start : subtreeRoots(path)) {
+            collect(start, start.getPath(), nodes, paths);
+        }
+        int batches = (nodes.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        List<Map<String, String>> loaded = new ArrayList<>(batches);
+        for (int b = 0; b < batches; b++) {
+            loaded.add(null);
+        }
+        IntStream.range(0, batches).parallel().forEach(b ->
+                loaded.set(b, loadBatch(nodes.subList(b * BATCH_SIZE, Math.min(nodes.size(), (b + 1) * BATCH_SIZE)))));
+
+        Map<String, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            String password = loaded.get(i / BATCH_SIZE).get(nodes.get(i).getStorageKey());
+            if (password != null) {
+                result.put(paths.get(i), password);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, String> loadBatch(List<Category> batch) {
+        List<String> keys = new ArrayList<>(batch.size());
+        for (Category node : batch) {
+            keys.add(node.getStorageKey());
+        }
+        return storageManager.loadAll(keys);
+    }
+
+    private List<Category> subtreeRoots(String path) {
+        if (path == null) {
+            return new ArrayList<>(roots.values());
+        }
+        Category category = index.get(path);
+        if (category == null) {
+            throw new IllegalArgumentException("Categoria inexistente: " + path);
+        }
+        return List.of(category);
+    }
+
+    /**
+     * Adds {@code root} and its descendants to {@code out}, parents before children.
+     */
+    static void collect(Category root, List<Category> out) {
+        collect(root, null, out, null);
+    }
+
+    private static void collect(Category root, String rootPath, List<Category> out, List<String> paths) {
+        // iterativo: hierarquias profundas não esgotam a pilha
+        Deque<Category> pending = new ArrayDeque<>();
+        Deque<String> pendingPaths = new ArrayDeque<>();
+        pending.push(root);
+        pendingPaths.push(rootPath == null ? "" : rootPath);
+        while (!pending.isEmpty()) {
+            Category node = pending.pop();
+            String path = pendingPaths.pop();
+            out.add(node);
+            if (paths != null) {
+                paths.add(path);
+            }
+            if (node instanceof SubCategory) {
+                List<Category> children = ((SubCategory) node).getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                    pendingPaths.push(paths == null ? "" : path + SEPARATOR + children.get(i).getName());
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("serial") // tarefa local, nunca serializada
+    private static final class VisitTask extends RecursiveAction {
+        private final Category category;
+        private final CategoryVisitor visitor;
+        private final int depth;
+
+        VisitTask(Category category, CategoryVisitor visitor, int depth) {
+            this.category = category;
+            this.visitor = visitor;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth >= FORK_DEPTH) {
+                // abaixo do limite percorre sem recursão
+                Deque<Category> pending = new ArrayDeque<>();
+                pending.push(category);
+                while (!pending.isEmpty()) {
+                    Category node = pending.pop();
+                    visitor.visit(node);
+                    if (node instanceof SubCategory) {
+                        for (Category child : ((SubCategory) node).getChildren()) {
+                            pending.push(child);
+                        }
+                    }
+                }
+                return;
+            }
+            visitor.visit(category);
+            if (!(category instanceof SubCategory)) {
+                return;
+            }
+            List<VisitTask> subtrees = new ArrayList<>();
+            for (Category child : ((SubCategory) category).getChildren()) {
+                if (child instanceof SubCategory) {
+                    subtrees.add(new VisitTask(child, visitor, depth + 1));
+                } else {
+                    visitor.visit(child);
+                }
+            }
+            invokeAll(subtrees);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.es2.project;
+
+/**
+ * Callback for {@link CategoryTree#visit(String, CategoryVisitor)}. Categories are
+ * visited from several threads at once, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface CategoryVisitor {
+    void visit(Category category);
+}
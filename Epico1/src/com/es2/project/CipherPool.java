@@ -6,19 +6,24 @@ import java.security.MessageDigest;
 import java.util.Base64;
 import java.util.LinkedList;
 
-public class CipherPool {
+public class CipherPool implements CipherProvider {
+    private static final MetricCounter EXHAUSTED = MetricsRegistry.getInstance().counter("cipher-pool.exhausted");
     private static CipherPool instance;
     private final LinkedList<Cipher> available = new LinkedList<>();
     private final LinkedList<Cipher> inUse = new LinkedList<>();
     private int maxSize = 10;
     private final SecretKeySpec keySpec;
 
-    private CipherPool(String encryptionKey) {
+    CipherPool(String encryptionKey) {
+        this.keySpec = deriveKey(encryptionKey);
+    }
+
+    static SecretKeySpec deriveKey(String encryptionKey) {
         try {
             byte[] keyBytes = encryptionKey.getBytes("UTF-8");
             MessageDigest sha = MessageDigest.getInstance("SHA-256");
             keyBytes = sha.digest(keyBytes); // gera 32 bytes
-            this.keySpec = new SecretKeySpec(keyBytes, 0, 16, "AES"); // usa 128 bits (16 bytes)
+            return new SecretKeySpec(keyBytes, 0, 16, "AES"); // usa 128 bits (16 bytes)
         } catch (Exception e) {
             throw new RuntimeException("Erro ao gerar chave AES", e);
         }
@@ -41,6 +46,7 @@ public class CipherPool {
         return cipher;
     }
 
+    @Override
     public synchronized Cipher borrowCipher(int mode) throws Exception {
         if (!available.isEmpty()) {
             Cipher cipher = available.removeFirst();
@@ -54,9 +60,11 @@ public class CipherPool {
             inUse.add(newCipher);
             return newCipher;
         }
+        EXHAUSTED.increment();
         throw new RuntimeException("Cipher pool exhausted!");
     }
 
+    @Override
     public synchronized void releaseCipher(Cipher cipher) throws Exception {
         if (!inUse.remove(cipher)) {
             throw new RuntimeException("Cipher não pertence ao pool");
@@ -64,7 +72,12 @@ public class CipherPool {
         available.add(cipher);
     }
 
-    public void setMaxSize(int maxSize) {
+    public synchronized void setMaxSize(int maxSize) {
         this.maxSize = maxSize;
     }
+
+    @Override
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
 }
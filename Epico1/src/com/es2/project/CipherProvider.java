@@ -0,0 +1,30 @@
+package com.es2.project;
+
+import javax.crypto.Cipher;
+
+/**
+ * Source of initialized AES ciphers used by {@link CryptoManager}.
+ * Every borrowed cipher must be given back with {@link #releaseCipher(Cipher)}.
+ */
+public interface CipherProvider {
+
+    /**
+     * Borrows a cipher initialized for the given mode.
+     *
+     * @param mode {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}.
+     * @return A cipher ready to use by the calling thread only.
+     */
+    Cipher borrowCipher(int mode) throws Exception;
+
+    /**
+     * Returns a cipher previously obtained from {@link #borrowCipher(int)}.
+     *
+     * @param cipher The borrowed cipher.
+     */
+    void releaseCipher(Cipher cipher) throws Exception;
+
+    /**
+     * Maximum number of ciphers lent at the same time.
+     */
+    int getMaxSize();
+}
@@ -0,0 +1,148 @@
+package com.es2.project;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cipher pool without a global lock. Idle ciphers are kept in one lock-free queue
+ * per mode, so a borrowed cipher is already initialized for the requested mode and
+ * is never re-initialized. The number of ciphers lent at the same time is bounded by a
+ * semaphore: when all are in use, borrowers wait up to {@code timeoutMillis} instead of
+ * failing at once.
+ */
+public class ConcurrentCipherPool implements CipherProvider {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final LatencyTimer WAIT = METRICS.timer("cipher-pool.wait");
+    private static final MetricCounter EXHAUSTED = METRICS.counter("cipher-pool.exhausted");
+
+    private final SecretKeySpec keySpec;
+    private final Queue<Cipher> encryptors = new ConcurrentLinkedQueue<>();
+    private final Queue<Cipher> decryptors = new ConcurrentLinkedQueue<>();
+    private final Map<Cipher, Integer> lent = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public ConcurrentCipherPool(String encryptionKey, int maxSize, long timeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize deve ser positivo");
+        }
+        this.keySpec = CipherPool.deriveKey(encryptionKey);
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxSize);
+    }
+
+    private Queue<Cipher> idle(int mode) {
+        if (mode == Cipher.ENCRYPT_MODE) {
+            return encryptors;
+        }
+        if (mode == Cipher.DECRYPT_MODE) {
+            return decryptors;
+        }
+        throw new IllegalArgumentException("Modo de cipher inválido: " + mode);
+    }
+
+    @Override
+    public Cipher borrowCipher(int mode) throws Exception {
+        Queue<Cipher> queue = idle(mode);
+        if (!permits.tryAcquire()) {
+            waits.incrementAndGet();
+            long start = WAIT.start();
+            boolean acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            WAIT.stop(start);
+            if (!acquired) {
+                timeouts.incrementAndGet();
+                EXHAUSTED.increment();
+                throw new RuntimeException("Cipher pool exhausted! (" + timeoutMillis + " ms)");
+            }
+        }
+
+        Cipher cipher = queue.poll();
+        try {
+            if (cipher == null) {
+                cipher = Cipher.getInstance("AES/ECB/NoPadding");
+                cipher.init(mode, keySpec);
+            }
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+        lent.put(cipher, mode);
+        return cipher;
+    }
+
+    @Override
+    public void releaseCipher(Cipher cipher) throws Exception {
+        Integer mode = lent.remove(cipher);
+        if (mode == null) {
+            throw new RuntimeException("Cipher não pertence ao pool");
+        }
+        Queue<Cipher> queue = idle(mode);
+        queue.offer(cipher);
+        if (closed) {
+            // devolvido depois de close(): não fica guardado
+            queue.clear();
+        }
+        permits.release();
+    }
+
+    /**
+     * Creates ciphers up front so the first requests do not pay for initialization.
+     *
+     * @param perMode Number of ciphers to create for each mode.
+     */
+    public void prefill(int perMode) throws Exception {
+        int count = Math.min(perMode, maxSize);
+        for (int i = 0; i < count; i++) {
+            Cipher encryptor = Cipher.getInstance("AES/ECB/NoPadding");
+            encryptor.init(Cipher.ENCRYPT_MODE, keySpec);
+            encryptors.offer(encryptor);
+            Cipher decryptor = Cipher.getInstance("AES/ECB/NoPadding");
+            decryptor.init(Cipher.DECRYPT_MODE, keySpec);
+            decryptors.offer(decryptor);
+        }
+    }
+
+    /**
+     * Drops every idle cipher and stops keeping the ones given back, e.g. when the vault
+     * or key using this pool is replaced. Callers still holding the pool keep working,
+     * with a fresh cipher per borrow, so nothing is retained once they drain.
+     */
+    public void close() {
+        closed = true;
+        encryptors.clear();
+        decryptors.clear();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int inUse() {
+        return lent.size();
+    }
+
+    public int idleCount() {
+        return encryptors.size() + decryptors.size();
+    }
+
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+}
@@ -0,0 +1,41 @@
+package com.es2.project;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Describes one configuration change: which properties changed and their old and new
+ * values, as written in {@code config.properties}.
+ */
+public final class ConfigChange {
+    private final ConfigSnapshot previous;
+    private final ConfigSnapshot current;
+    private final Set<String> changedKeys;
+
+    ConfigChange(ConfigSnapshot previous, ConfigSnapshot current, Set<String> changedKeys) {
+        this.previous = previous;
+        this.current = current;
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+    }
+
+    public Set<String> getChangedKeys() {
+        return changedKeys;
+    }
+
+    public boolean isChanged(String key) {
+        return changedKeys.contains(key);
+    }
+
+    public String getOldValue(String key) {
+        return previous.values.get(key);
+    }
+
+    public String getNewValue(String key) {
+        return current.values.get(key);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChange" + changedKeys;
+    }
+}
@@ -0,0 +1,21 @@
+package com.es2.project;
+
+/**
+ * Reacts to configuration changes registered with
+ * {@link AppConfig#addListener(ConfigListener, String...)}.
+ */
+public interface ConfigListener {
+
+    /**
+     * Called before the change is applied. Throwing {@link IllegalArgumentException}
+     * rejects the whole change and the current configuration stays in place.
+     */
+    default void validate(ConfigChange change) {
+    }
+
+    /**
+     * Called after the change is applied; the {@link AppConfig} getters already return
+     * the new values.
+     */
+    void configChanged(ConfigChange change);
+}
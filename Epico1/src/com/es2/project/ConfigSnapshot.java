@@ -0,0 +1,170 @@
+package com.es2.project;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable, validated set of configuration values. {@link AppConfig} publishes one
+ * snapshot at a time through a volatile reference and replaces it as a whole on every
+ * change, so readers never lock and never see a half-applied change.
+ */
+final class ConfigSnapshot {
+    final Map<String, String> values;
+
+    final String databaseUrl;
+    final String encryptionKey;
+    final int passwordLength;
+    final String folderPath;
+    final String storageMode;
+    final long flushIntervalMillis;
+    final String cipherPoolType;
+    final int cipherPoolSize;
+    final long cipherPoolTimeoutMillis;
+    final int historyMaxEntries;
+    final long historyMaxAgeMillis;
+    final String snapshotDir;
+    final int snapshotBaseInterval;
+    final int storageShards;
+    final int storageCacheEntries;
+    final long storageCacheTtlMillis;
+    final boolean metricsEnabled;
+    final boolean metricsJmx;
+    final int eventsBufferSize;
+    final int eventsBatchSize;
+    final String eventsDropPolicy;
+    final String eventsSink;
+    final String eventsFile;
+    final boolean watch;
+    final int hostMaxOpenVaults;
+    final long hostIdleTimeoutMillis;
+    final int vaultMaxConcurrent;
+    final int vaultMaxOpsPerSecond;
+
+    /**
+     * Parses and validates the given properties.
+     *
+     * @throws IllegalArgumentException if a value is missing, malformed or out of range.
+     */
+    ConfigSnapshot(Properties props) {
+        Map<String, String> raw = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            raw.put(key, props.getProperty(key));
+        }
+        this.values = Collections.unmodifiableMap(raw);
+        try {
+            this.databaseUrl = props.getProperty("database.url");
+            this.encryptionKey = props.getProperty("encryption.key");
+            this.passwordLength = Integer.parseInt(props.getProperty("password.length"));
+            this.folderPath = props.getProperty("folder.path");
+            this.storageMode = props.getProperty("storage.mode", AppConfig.STORAGE_FILE).trim().toUpperCase();
+            this.flushIntervalMillis = Long.parseLong(props.getProperty("storage.flush.interval.ms", "1000").trim());
+            this.cipherPoolType = props.getProperty("cipher.pool.type", AppConfig.CIPHER_POOL_CONCURRENT).trim().toUpperCase();
+            this.cipherPoolSize = Integer.parseInt(props.getProperty("cipher.pool.size", "64").trim());
+            this.cipherPoolTimeoutMillis = Long.parseLong(props.getProperty("cipher.pool.timeout.ms", "1000").trim());
+            this.historyMaxEntries = Integer.parseInt(props.getProperty("history.max.entries", "100").trim());
+            this.historyMaxAgeMillis = Long.parseLong(props.getProperty("history.max.age.ms", "0").trim());
+            this.snapshotDir = props.getProperty("snapshot.dir", "").trim();
+            this.snapshotBaseInterval = Integer.parseInt(props.getProperty("snapshot.base.interval", "16").trim());
+            this.storageShards = Integer.parseInt(props.getProperty("storage.shards", "4").trim());
+            this.storageCacheEntries = Integer.parseInt(props.getProperty("storage.cache.entries", "0").trim());
+            this.storageCacheTtlMillis = Long.parseLong(props.getProperty("storage.cache.ttl.ms", "0").trim());
+            this.metricsEnabled = Boolean.parseBoolean(props.getProperty("metrics.enabled", "false").trim());
+            this.metricsJmx = Boolean.parseBoolean(props.getProperty("metrics.jmx", "true").trim());
+            this.eventsBufferSize = Integer.parseInt(props.getProperty("events.buffer.size", "1024").trim());
+            this.eventsBatchSize = Integer.parseInt(props.getProperty("events.batch.size", "64").trim());
+            this.eventsDropPolicy = props.getProperty("events.drop.policy", EventPipeline.DropPolicy.BLOCK.name()).trim().toUpperCase();
+            this.eventsSink = props.getProperty("events.sink", EventPipeline.SINK_CONSOLE).trim().toUpperCase();
+            this.eventsFile = props.getProperty("events.file", "").trim();
+            this.watch = Boolean.parseBoolean(props.getProperty("config.watch", "false").trim());
+            this.hostMaxOpenVaults = Integer.parseInt(props.getProperty("vault.host.max.open", "1024").trim());
+            this.hostIdleTimeoutMillis = Long.parseLong(props.getProperty("vault.host.idle.timeout.ms", "300000").trim());
+            this.vaultMaxConcurrent = Integer.parseInt(props.getProperty("vault.max.concurrent", "0").trim());
+            this.vaultMaxOpsPerSecond = Integer.parseInt(props.getProperty("vault.max.ops.per.second", "0").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Formato inválido para password.length, storage.*, cipher.pool.*, history.*, snapshot.*, events.* ou vault.*", e);
+        }
+        validate();
+    }
+
+    /**
+     * Returns a copy of this snapshot with one value replaced ({@code null} removes it).
+     */
+    ConfigSnapshot with(String key, String value) {
+        Properties props = toProperties();
+        if (value == null) {
+            props.remove(key);
+        } else {
+            props.setProperty(key, value);
+        }
+        return new ConfigSnapshot(props);
+    }
+
+    Properties toProperties() {
+        Properties props = new Properties();
+        props.putAll(values);
+        return props;
+    }
+
+    /**
+     * Returns the keys whose value differs between this snapshot and {@code other}.
+     */
+    Set<String> diff(ConfigSnapshot other) {
+        Set<String> keys = new HashSet<>(values.keySet());
+        keys.addAll(other.values.keySet());
+        keys.removeIf(key -> Objects.equals(values.get(key), other.values.get(key)));
+        return keys;
+    }
+
+    private void validate() {
+        if (passwordLength < 11) {
+            throw new IllegalArgumentException("passwordLength deve ser de pelo menos 11");
+        }
+        if (encryptionKey == null || encryptionKey.isBlank()) {
+            throw new IllegalArgumentException("encryptionKey não pode estar vazia");
+        }
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("storage.flush.interval.ms deve ser positivo");
+        }
+        if (cipherPoolSize <= 0 || cipherPoolTimeoutMillis < 0) {
+            throw new IllegalArgumentException("cipher.pool.size deve ser positivo e cipher.pool.timeout.ms não negativo");
+        }
+        if (historyMaxEntries <= 0 || historyMaxAgeMillis < 0) {
+            throw new IllegalArgumentException("history.max.entries deve ser positivo e history.max.age.ms não negativo");
+        }
+        if (storageShards <= 0) {
+            throw new IllegalArgumentException("storage.shards deve ser positivo");
+        }
+        if (storageCacheEntries < 0 || storageCacheTtlMillis < 0) {
+            throw new IllegalArgumentException("storage.cache.entries e storage.cache.ttl.ms não podem ser negativos");
+        }
+        if (eventsBufferSize <= 0 || eventsBatchSize <= 0) {
+            throw new IllegalArgumentException("events.buffer.size e events.batch.size devem ser positivos");
+        }
+        try {
+            EventPipeline.DropPolicy.valueOf(eventsDropPolicy);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("events.drop.policy inválido: " + eventsDropPolicy);
+        }
+        if (!eventsSink.equals(EventPipeline.SINK_CONSOLE) && !eventsSink.equals(EventPipeline.SINK_FILE)
+                && !eventsSink.equals(EventPipeline.SINK_MEMORY)) {
+            throw new IllegalArgumentException("events.sink inválido: " + eventsSink);
+        }
+        if (eventsSink.equals(EventPipeline.SINK_FILE) && eventsFile.isEmpty()) {
+            throw new IllegalArgumentException("events.file é obrigatório com events.sink=FILE");
+        }
+        if (snapshotBaseInterval <= 0) {
+            throw new IllegalArgumentException("snapshot.base.interval deve ser positivo");
+        }
+        if (hostMaxOpenVaults <= 0 || hostIdleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("vault.host.max.open deve ser positivo e vault.host.idle.timeout.ms não negativo");
+        }
+        if (vaultMaxConcurrent < 0 || vaultMaxOpsPerSecond < 0) {
+            throw new IllegalArgumentException("vault.max.concurrent e vault.max.ops.per.second não podem ser negativos");
+        }
+    }
+}
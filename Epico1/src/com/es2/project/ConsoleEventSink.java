@@ -0,0 +1,18 @@
+package com.es2.project;
+
+import java.util.List;
+
+/**
+ * Prints each event on standard output, as the decorators did before the pipeline.
+ */
+public class ConsoleEventSink implements EventSink {
+
+    @Override
+    public void write(List<SecurityEvent> batch) {
+        StringBuilder lines = new StringBuilder();
+        for (SecurityEvent event : batch) {
+            lines.append(event).append(System.lineSeparator());
+        }
+        System.out.print(lines);
+    }
+}
@@ -1,70 +1,399 @@
 package com.es2.project;
 
 import javax.crypto.Cipher;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class CryptoManager {
-    private static CryptoManager instance;
-    private final CipherPool cipherPool;
+    private static final int BLOCK_SIZE = 16;
+    private static final int BULK_CHUNK = 256;
+    private static final Base64.Encoder ENCODER = Base64.getEncoder();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+    // Base64.Decoder.decode(byte[], byte[]) lê o array inteiro: um array por comprimento (múltiplo de 4)
+    private static final int CACHED_BASE64_LENGTHS = 64;
+    private static final ThreadLocal<byte[][]> BASE64_INPUT = ThreadLocal.withInitial(() -> new byte[CACHED_BASE64_LENGTHS][]);
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final LatencyTimer ENCRYPT = METRICS.timer("crypto.encrypt");
+    private static final LatencyTimer DECRYPT = METRICS.timer("crypto.decrypt");
+    private static final LatencyTimer ENCRYPT_ALL = METRICS.timer("crypto.encryptAll");
+    private static final LatencyTimer DECRYPT_ALL = METRICS.timer("crypto.decryptAll");
 
-    private CryptoManager(String key) {
-        cipherPool = CipherPool.getInstance(key);
+    private static volatile CryptoManager instance;
+    private final CipherProvider cipherPool;
+    private final String keyId;
+
+    private CryptoManager(String key, AppConfig config, boolean shared) {
+        keyId = keyIdOf(key);
+        if (AppConfig.CIPHER_POOL_LEGACY.equals(config.getCipherPoolType())) {
+            cipherPool = shared ? CipherPool.getInstance(key) : new CipherPool(key);
+        } else {
+            cipherPool = new ConcurrentCipherPool(key, config.getCipherPoolSize(), config.getCipherPoolTimeoutMillis());
+        }
     }
 
-    public static synchronized CryptoManager getInstance() {
-        if (instance == null) {
-            instance = new CryptoManager(AppConfig.getInstance().getEncryptionKey());
+    public static CryptoManager getInstance() {
+        CryptoManager current = instance;
+        if (current == null) {
+            synchronized (CryptoManager.class) {
+                current = instance;
+                if (current == null) {
+                    AppConfig config = AppConfig.getInstance();
+                    current = new CryptoManager(config.getEncryptionKey(), config, true);
+                    instance = current;
+                }
+            }
         }
-        return instance;
+        return current;
     }
 
     public static synchronized void reload(String newKey) {
         CipherPool.reset(newKey);
-        instance = new CryptoManager(newKey);
+        CryptoManager previous = instance;
+        instance = new CryptoManager(newKey, AppConfig.getInstance(), true);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Creates a CryptoManager with its own cipher pool for the given configuration,
+     * independent of the global instance (see {@link VaultContext}).
+     */
+    static CryptoManager create(String key, AppConfig config) {
+        return new CryptoManager(key, config, false);
+    }
+
+    /**
+     * Creates a CryptoManager for a key other than the configured one, used while
+     * values encrypted with several keys coexist (see {@link KeyRing}).
+     *
+     * @param key Encryption key.
+     * @return A new, non-shared CryptoManager with its own cipher pool.
+     */
+    static CryptoManager forKey(String key) {
+        return forKey(key, AppConfig.getInstance());
+    }
+
+    static CryptoManager forKey(String key, AppConfig config) {
+        return new CryptoManager(key, new ConcurrentCipherPool(key, config.getCipherPoolSize(), config.getCipherPoolTimeoutMillis()));
+    }
+
+    private CryptoManager(String key, CipherProvider cipherPool) {
+        this.keyId = keyIdOf(key);
+        this.cipherPool = cipherPool;
+    }
+
+    /**
+     * Short fingerprint of the derived AES key, used to tag ciphertexts with the key
+     * that produced them. It does not reveal the key itself.
+     */
+    static String keyIdOf(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(CipherPool.deriveKey(key).getEncoded());
+            StringBuilder id = new StringBuilder(8);
+            for (int i = 0; i < 4; i++) {
+                id.append(String.format("%02x", digest[i]));
+            }
+            return id.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao calcular o id da chave", e);
+        }
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * Creates {@code perMode} ciphers per mode up front (when the pool supports it) and
+     * runs one encrypt/decrypt round trip, so the first real request pays no setup.
+     */
+    void warmUp(int perMode) {
+        if (cipherPool instanceof ConcurrentCipherPool) {
+            try {
+                ((ConcurrentCipherPool) cipherPool).prefill(perMode);
+            } catch (Exception e) {
+                throw new RuntimeException("Erro ao preparar o pool de ciphers", e);
+            }
+        }
+        decrypt(encrypt("aquecimento"));
+    }
+
+    /**
+     * Releases the ciphers of a non-shared pool (see {@link ConcurrentCipherPool#close()}).
+     * Operations already running on this manager still complete, and the ciphers they
+     * hold are dropped as they finish.
+     */
+    void close() {
+        if (cipherPool instanceof ConcurrentCipherPool) {
+            ((ConcurrentCipherPool) cipherPool).close();
+        }
+    }
+
+    /**
+     * Encrypts {@code data} with a cipher already borrowed by the caller. The plaintext
+     * is padded with spaces up to the next block boundary (a full block when aligned),
+     * directly in a per-thread scratch buffer.
+     */
+    private String encryptWith(Cipher cipher, String data) throws Exception {
+        byte[] plain = data.getBytes(StandardCharsets.UTF_8);
+        int paddedLength = plain.length + (BLOCK_SIZE - plain.length % BLOCK_SIZE);
+        byte[] buffer = scratch(paddedLength);
+        System.arraycopy(plain, 0, buffer, 0, plain.length);
+        Arrays.fill(buffer, plain.length, paddedLength, (byte) ' ');
+        int length = cipher.doFinal(buffer, 0, paddedLength, buffer, 0);
+        return ENCODER.encodeToString(Arrays.copyOf(buffer, length));
+    }
+
+    private String decryptWith(Cipher cipher, String data) throws Exception {
+        byte[] decoded = DECODER.decode(data);
+        int length = cipher.doFinal(decoded, 0, decoded.length, decoded, 0);
+        return new String(decoded, 0, length, StandardCharsets.UTF_8).trim();
+    }
+
+    private static byte[] scratch(int size) {
+        byte[] buffer = SCRATCH.get();
+        if (buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+            SCRATCH.set(buffer);
+        }
+        return buffer;
     }
 
-    private String padToBlockSize(String data) throws UnsupportedEncodingException {
-        int blockSize = 16;
-        int paddingLength = blockSize - (data.getBytes("UTF-8").length % blockSize);
-        return data + " ".repeat(paddingLength);
+    /**
+     * Per-thread array of exactly {@code length} bytes for Base64 input; ciphertexts of
+     * unusual length get a fresh one.
+     */
+    private static byte[] base64Input(int length) {
+        int slot = length / 4;
+        if (length % 4 != 0 || slot >= CACHED_BASE64_LENGTHS) {
+            return new byte[length];
+        }
+        byte[][] cache = BASE64_INPUT.get();
+        if (cache[slot] == null) {
+            cache[slot] = new byte[length];
+        }
+        return cache[slot];
     }
 
     public String encrypt(String data) {
+        long start = ENCRYPT.start();
         Cipher cipher = null;
         try {
             cipher = cipherPool.borrowCipher(Cipher.ENCRYPT_MODE);
-            String paddedData = padToBlockSize(data);
-            byte[] encrypted = cipher.doFinal(paddedData.getBytes("UTF-8"));
-            return Base64.getEncoder().encodeToString(encrypted);
+            return encryptWith(cipher, data);
         } catch (Exception e) {
             throw new RuntimeException("Erro ao encriptar", e);
         } finally {
-            if (cipher != null) {
-                try {
-                    cipherPool.releaseCipher(cipher);
-                } catch (Exception e) {
-                    System.err.println("Erro ao libertar cipher: " + e.getMessage());
-                }
-            }
+            release(cipher);
+            ENCRYPT.stop(start);
         }
     }
 
 
     public String decrypt(String data) {
+        long start = DECRYPT.start();
         Cipher cipher = null;
         try {
             cipher = cipherPool.borrowCipher(Cipher.DECRYPT_MODE);
-            byte[] decoded = Base64.getDecoder().decode(data);
-            return new String(cipher.doFinal(decoded), "UTF-8").trim();
+            return decryptWith(cipher, data);
         } catch (Exception e) {
             throw new RuntimeException("Erro ao desencriptar", e);
         } finally {
+            release(cipher);
+            DECRYPT.stop(start);
+        }
+    }
+
+    /**
+     * Encrypts a password held in a {@code char[]}. The plaintext is encoded and padded
+     * inside a per-thread buffer that is zeroed before returning; only the ciphertext
+     * leaves it. The caller keeps ownership of {@code password} and may clear it
+     * afterwards.
+     *
+     * @param password Plain password.
+     * @return Encrypted password in the same format as {@link #encrypt(String)}.
+     */
+    public String encrypt(char[] password) {
+        long start = ENCRYPT.start();
+        Cipher cipher = null;
+        byte[] buffer = null;
+        int used = 0;
+        try {
+            cipher = cipherPool.borrowCipher(Cipher.ENCRYPT_MODE);
+            buffer = scratch(BufferCodec.maxUtf8Length(password.length) + BLOCK_SIZE);
+            int length = BufferCodec.encodeUtf8(password, 0, password.length, buffer);
+            used = length + (BLOCK_SIZE - length % BLOCK_SIZE);
+            Arrays.fill(buffer, length, used, (byte) ' ');
+            return ENCODER.encodeToString(cipher.doFinal(buffer, 0, used));
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao encriptar", e);
+        } finally {
+            if (buffer != null) {
+                Arrays.fill(buffer, 0, used, (byte) 0);
+            }
+            release(cipher);
+            ENCRYPT.stop(start);
+        }
+    }
+
+    /**
+     * Decrypts straight into a caller-supplied {@code char[]}, without creating a String
+     * holding the plaintext. The Base64 is decoded and decrypted in per-thread buffers,
+     * so steady-state calls do not allocate; they are zeroed before returning.
+     *
+     * @param data   Encrypted password (Base64), read from {@code offset} to the end.
+     * @param offset Index of the first Base64 char in {@code data}.
+     * @param out    Destination; {@code data.length() - offset} chars always suffice.
+     * @return Number of chars written to {@code out}.
+     */
+    public int decrypt(CharSequence data, int offset, char[] out) {
+        long start = DECRYPT.start();
+        Cipher cipher = null;
+        byte[] buffer = null;
+        int used = 0;
+        try {
+            cipher = cipherPool.borrowCipher(Cipher.DECRYPT_MODE);
+            int chars = data.length() - offset;
+            byte[] base64 = base64Input(chars);
+            for (int i = 0; i < chars; i++) {
+                char c = data.charAt(offset + i);
+                if (c > 0x7F) {
+                    throw new IllegalArgumentException("Caracter inválido em Base64: " + c);
+                }
+                base64[i] = (byte) c;
+            }
+            // cifrado em [0, capacity) e texto em claro a seguir: sem sobreposição o
+            // Cipher não copia a entrada
+            int capacity = chars / 4 * 3 + 3;
+            buffer = scratch(2 * capacity);
+            used = 2 * capacity;
+            int decoded = DECODER.decode(base64, buffer);
+            int length = capacity + cipher.doFinal(buffer, 0, decoded, buffer, capacity);
+            // mesmo resultado que String.trim(): só bytes ASCII <= ' ' são removidos
+            int from = capacity;
+            while (from < length && (buffer[from] & 0xFF) <= ' ') {
+                from++;
+            }
+            while (length > from && (buffer[length - 1] & 0xFF) <= ' ') {
+                length--;
+            }
+            if (out.length < length - from) {
+                throw new IllegalArgumentException("Buffer de saída demasiado pequeno");
+            }
+            return BufferCodec.decodeUtf8(buffer, from, length, out);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao desencriptar", e);
+        } finally {
+            if (buffer != null) {
+                Arrays.fill(buffer, 0, used, (byte) 0);
+            }
+            release(cipher);
+            DECRYPT.stop(start);
+        }
+    }
+
+    private void release(Cipher cipher) {
+        if (cipher != null) {
             try {
-                if (cipher != null) cipherPool.releaseCipher(cipher);
+                cipherPool.releaseCipher(cipher);
             } catch (Exception e) {
                 System.err.println("Erro ao libertar cipher: " + e.getMessage());
             }
         }
     }
+
+    /**
+     * Encrypts every value, splitting large lists across the ForkJoin common pool (or
+     * the caller's pool). Each part borrows one cipher for its whole chunk, and there
+     * are at most half as many parts as the cipher pool holds.
+     *
+     * @param values Plain values.
+     * @return Encrypted values, in the same order.
+     */
+    public List<String> encryptAll(List<String> values) {
+        return transformAll(values, Cipher.ENCRYPT_MODE);
+    }
+
+    /**
+     * Decrypts every value, splitting large lists like {@link #encryptAll(List)}.
+     *
+     * @param values Encrypted values.
+     * @return Plain values, in the same order.
+     */
+    public List<String> decryptAll(List<String> values) {
+        return transformAll(values, Cipher.DECRYPT_MODE);
+    }
+
+    private List<String> transformAll(List<String> values, int mode) {
+        LatencyTimer timer = mode == Cipher.ENCRYPT_MODE ? ENCRYPT_ALL : DECRYPT_ALL;
+        long start = timer.start();
+        String[] results = new String[values.size()];
+        // cada parte empresta um cipher: no máximo metade do pool, o resto fica para
+        // operações individuais concorrentes (o pool LEGACY falha em vez de esperar)
+        int parts = Math.max(1, cipherPool.getMaxSize() / 2);
+        int chunk = Math.max(BULK_CHUNK, (results.length + parts - 1) / parts);
+        BulkTask task = new BulkTask(values, results, mode, chunk, 0, results.length);
+        if (results.length <= chunk) {
+            task.compute();
+        } else if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        timer.stop(start);
+        return Arrays.asList(results);
+    }
+
+    @SuppressWarnings("serial") // tarefa local, nunca serializada
+    private final class BulkTask extends RecursiveAction {
+        private final List<String> values;
+        private final String[] results;
+        private final int mode;
+        private final int chunk;
+        private final int from;
+        private final int to;
+
+        BulkTask(List<String> values, String[] results, int mode, int chunk, int from, int to) {
+            this.values = values;
+            this.results = results;
+            this.mode = mode;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunk) {
+                // divide em partes de chunk, para nunca haver mais partes do que as previstas
+                int middle = from + Math.max(1, (to - from) / chunk / 2) * chunk;
+                invokeAll(new BulkTask(values, results, mode, chunk, from, middle),
+                        new BulkTask(values, results, mode, chunk, middle, to));
+                return;
+            }
+            Cipher cipher = null;
+            try {
+                cipher = cipherPool.borrowCipher(mode);
+                for (int i = from; i < to; i++) {
+                    results[i] = mode == Cipher.ENCRYPT_MODE
+                            ? encryptWith(cipher, values.get(i))
+                            : decryptWith(cipher, values.get(i));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(mode == Cipher.ENCRYPT_MODE ? "Erro ao encriptar" : "Erro ao desencriptar", e);
+            } finally {
+                release(cipher);
+            }
+        }
+    }
 }
@@ -0,0 +1,256 @@
+package com.es2.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers {@link SecurityEvent}s off the request path. Decorators publish into a
+ * bounded lock-free ring buffer and return at once; a background consumer drains it in
+ * batches of up to {@code batchSize} and hands each batch to every sink.
+ * <p>
+ * When the buffer is full the {@link DropPolicy} decides: drop the new event, drop the
+ * oldest buffered one, or block the publisher until there is room. Published, dropped,
+ * delivered and blocked events are counted. {@link #close()} (and JVM shutdown)
+ * delivers whatever is still buffered.
+ */
+public class EventPipeline implements AutoCloseable {
+    public enum DropPolicy { DROP_NEWEST, DROP_OLDEST, BLOCK }
+
+    public static final String SINK_CONSOLE = "CONSOLE";
+    public static final String SINK_FILE = "FILE";
+    public static final String SINK_MEMORY = "MEMORY";
+
+    private static final long IDLE_PARK_NANOS = 10_000_000;
+    private static final long BLOCK_PARK_NANOS = 100_000;
+
+    private static EventPipeline instance;
+
+    private final List<EventSink> sinks;
+    private final EventRingBuffer buffer;
+    private final int batchSize;
+    private final DropPolicy dropPolicy;
+    private final Thread consumer;
+    private final Thread shutdownHook;
+    private volatile boolean consumerIdle = false;
+    private volatile boolean closed = false;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder overwritten = new LongAdder(); // já publicados, descartados por DROP_OLDEST
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder sinkFailures = new LongAdder();
+
+    private EventPipeline(List<EventSink> sinks, int capacity, int batchSize, DropPolicy dropPolicy) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity e batchSize devem ser positivos");
+        }
+        this.sinks = new ArrayList<>(sinks);
+        this.buffer = new EventRingBuffer(capacity);
+        this.batchSize = batchSize;
+        this.dropPolicy = dropPolicy;
+
+        this.consumer = new Thread(this::drain, "security-event-pipeline");
+        consumer.setDaemon(true);
+        this.shutdownHook = new Thread(this::close, "security-event-pipeline-shutdown");
+    }
+
+    /**
+     * Creates a pipeline and starts its consumer.
+     *
+     * @param capacity  Events the buffer holds.
+     * @param batchSize Maximum events handed to the sinks at once.
+     */
+    public static EventPipeline start(List<EventSink> sinks, int capacity, int batchSize, DropPolicy dropPolicy) {
+        EventPipeline pipeline = new EventPipeline(sinks, capacity, batchSize, dropPolicy);
+        // só depois de construído, para o consumidor ver o objeto completo
+        pipeline.consumer.start();
+        Runtime.getRuntime().addShutdownHook(pipeline.shutdownHook);
+        return pipeline;
+    }
+
+    /**
+     * Pipeline used by the decorators by default, configured by the {@code events.*}
+     * properties.
+     */
+    public static synchronized EventPipeline getInstance() {
+        if (instance == null) {
+            AppConfig config = AppConfig.getInstance();
+            instance = start(List.of(createSink(config)), config.getEventsBufferSize(),
+                    config.getEventsBatchSize(), DropPolicy.valueOf(config.getEventsDropPolicy()));
+        }
+        return instance;
+    }
+
+    private static EventSink createSink(AppConfig config) {
+        switch (config.getEventsSink()) {
+            case SINK_CONSOLE:
+                return new ConsoleEventSink();
+            case SINK_FILE:
+                return new FileEventSink(config.getEventsFile());
+            case SINK_MEMORY:
+                return new InMemoryEventSink(config.getEventsBufferSize());
+            default:
+                throw new IllegalArgumentException("events.sink inválido: " + config.getEventsSink());
+        }
+    }
+
+    /**
+     * Queues an event for delivery without waiting for the sinks.
+     *
+     * @return false if the event was dropped.
+     */
+    public boolean publish(SecurityEvent event) {
+        if (closed) {
+            dropped.increment();
+            return false;
+        }
+        if (!buffer.offer(event)) {
+            switch (dropPolicy) {
+                case DROP_NEWEST:
+                    dropped.increment();
+                    return false;
+                case DROP_OLDEST:
+                    do {
+                        if (buffer.poll() != null) {
+                            dropped.increment();
+                            overwritten.increment();
+                        }
+                    } while (!buffer.offer(event));
+                    break;
+                case BLOCK:
+                    blocked.increment();
+                    do {
+                        if (closed) {
+                            dropped.increment();
+                            return false;
+                        }
+                        LockSupport.unpark(consumer);
+                        LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                    } while (!buffer.offer(event));
+                    break;
+            }
+        }
+        published.increment();
+        if (consumerIdle) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    private void drain() {
+        List<SecurityEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            SecurityEvent event;
+            while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+                batch.clear();
+                continue;
+            }
+            if (closed) {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            consumerIdle = true;
+            if (buffer.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            consumerIdle = false;
+        }
+    }
+
+    private void deliver(List<SecurityEvent> batch) {
+        for (EventSink sink : sinks) {
+            try {
+                sink.write(batch);
+            } catch (Exception e) {
+                sinkFailures.increment();
+                System.err.println("Erro ao entregar eventos de segurança: " + e.getMessage());
+            }
+        }
+        delivered.add(batch.size());
+        batches.increment();
+    }
+
+    /**
+     * Waits until every event published so far has been handed to the sinks.
+     *
+     * @return true if the buffer was drained within the timeout.
+     */
+    public boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (delivered.sum() + overwritten.sum() < published.sum()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting events, delivers the buffered ones and closes the sinks.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM já está a encerrar, o hook trata da entrega
+        }
+        for (EventSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                System.err.println("Erro ao fechar sink de eventos: " + e.getMessage());
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getSinkFailureCount() {
+        return sinkFailures.sum();
+    }
+}
@@ -0,0 +1,77 @@
+package com.es2.project;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer queue used by {@link EventPipeline}. Every slot
+ * carries a sequence number telling whether it is free for the producer at a given
+ * position or holds an event for the consumer at that position, so producers and the
+ * consumer only contend on a compare-and-set of their own counter.
+ */
+final class EventRingBuffer {
+    private final SecurityEvent[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // próxima posição a ler
+    private final AtomicLong tail = new AtomicLong(); // próxima posição a escrever
+
+    EventRingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+        this.items = new SecurityEvent[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full.
+     */
+    boolean offer(SecurityEvent event) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) (position & mask);
+            long diff = sequences.get(slot) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[slot] = event;
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return The oldest event, or null if the buffer is empty.
+     */
+    SecurityEvent poll() {
+        while (true) {
+            long position = head.get();
+            int slot = (int) (position & mask);
+            long diff = sequences.get(slot) - (position + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    SecurityEvent event = items[slot];
+                    items[slot] = null;
+                    sequences.set(slot, position + mask + 1);
+                    return event;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    int capacity() {
+        return items.length;
+    }
+}
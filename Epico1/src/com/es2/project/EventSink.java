@@ -0,0 +1,17 @@
+package com.es2.project;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the events drained by an {@link EventPipeline}. Sinks are only
+ * called from the pipeline's consumer thread, one batch at a time.
+ */
+public interface EventSink extends AutoCloseable {
+
+    void write(List<SecurityEvent> batch) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
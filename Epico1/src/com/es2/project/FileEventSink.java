@@ -0,0 +1,40 @@
+package com.es2.project;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Appends events to a text file, one line per event, written once per batch.
+ */
+public class FileEventSink implements EventSink {
+    private final BufferedWriter writer;
+
+    public FileEventSink(String filePath) {
+        try {
+            this.writer = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao abrir o ficheiro de eventos " + filePath, e);
+        }
+    }
+
+    @Override
+    public void write(List<SecurityEvent> batch) throws IOException {
+        for (SecurityEvent event : batch) {
+            writer.write(Instant.ofEpochMilli(event.getTimestamp()) + " " + event);
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -1,42 +1,300 @@
 package com.es2.project;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Stores the passwords in a properties file. The live file is never truncated: every
+ * write goes to {@code <file>.tmp}, is forced to disk and then atomically renamed over
+ * the live file, so a crash leaves either the old or the new vault.
+ * <p>
+ * Saves use group commit: while one thread is writing, concurrent saves to the same
+ * file queue up and the next writer applies all of them in a single rewrite and fsync.
+ * A save returns only once its change is durable.
+ */
 public class FilePasswordStorage implements PasswordStorage {
+    private static final MetricCounter SAVES = MetricsRegistry.getInstance().counter("file-storage.saves");
+    private static final MetricCounter COMMITS = MetricsRegistry.getInstance().counter("file-storage.commits");
+
+    // um committer por ficheiro, partilhado por todas as instâncias abertas sobre ele
+    private static final Map<Path, GroupCommit> COMMITTERS = new ConcurrentHashMap<>();
+
     private final String filePath;
+    private final GroupCommit committer;
+    // escritas partilham, close é exclusivo: nenhuma escrita chega a um committer já esquecido
+    private final ReentrantReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private boolean closed = false;
 
     public FilePasswordStorage(String filePath) {
         this.filePath = filePath;
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        this.committer = COMMITTERS.compute(path, (p, existing) -> {
+            GroupCommit shared = existing != null ? existing : new GroupCommit(p);
+            shared.users++;
+            return shared;
+        });
     }
 
     @Override
     public void savePassword(String categoryName, String password) {
+        commit(Collections.singletonMap(categoryName, password), List.of());
+    }
+
+    @Override
+    public String loadPassword(String categoryName) {
         Properties props = new Properties();
         try (InputStream input = new FileInputStream(filePath)) {
             props.load(input);
+            return props.getProperty(categoryName);
         } catch (IOException e) {
-            }
+            throw new RuntimeException("Erro ao carregar password do arquivo", e);
+        }
+    }
 
+    @Override
+    public Set<String> categoryNames() {
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(filePath)) {
+            props.load(input);
+        } catch (FileNotFoundException e) {
+            return new HashSet<>();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao carregar passwords do arquivo", e);
+        }
+        return props.stringPropertyNames();
+    }
 
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        if (passwords.isEmpty()) {
+            return;
+        }
+        commit(new LinkedHashMap<>(passwords), List.of());
+    }
 
-        props.setProperty(categoryName, password);
+    @Override
+    public void deleteAll(Collection<String> categoryNames) {
+        if (categoryNames.isEmpty()) {
+            return;
+        }
+        commit(Map.of(), new ArrayList<>(categoryNames));
+    }
 
-        try (OutputStream output = new FileOutputStream(filePath)) {
-            props.store(output, "Passwords das Categorias");
-        } catch (IOException e) {
-            throw new RuntimeException("Erro ao salvar password no arquivo", e);
+    private void commit(Map<String, String> changes, Collection<String> removals) {
+        lifecycle.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage já foi fechado");
+            }
+            committer.commit(changes, removals);
+        } finally {
+            lifecycle.readLock().unlock();
         }
     }
 
     @Override
-    public String loadPassword(String categoryName) {
+    public Map<String, String> loadAll(Collection<String> categoryNames) {
         Properties props = new Properties();
         try (InputStream input = new FileInputStream(filePath)) {
             props.load(input);
-            return props.getProperty(categoryName);
+        } catch (FileNotFoundException e) {
+            return new LinkedHashMap<>();
         } catch (IOException e) {
-            throw new RuntimeException("Erro ao carregar password do arquivo", e);
+            throw new RuntimeException("Erro ao carregar passwords do arquivo", e);
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String name : categoryNames) {
+            String password = props.getProperty(name);
+            if (password != null) {
+                result.put(name, password);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Waits for in-flight saves, then forgets the file's committer once no open instance
+     * uses it, so hosts that open and close many vaults do not keep one per file forever.
+     * Saves after close are rejected.
+     */
+    @Override
+    public void close() {
+        lifecycle.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            COMMITTERS.computeIfPresent(committer.path, (p, shared) -> --shared.users == 0 ? null : shared);
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+    }
+
+    private static final class Pending {
+        final Map<String, String> changes;
+        final Collection<String> removals;
+        boolean done;
+        RuntimeException error;
+
+        Pending(Map<String, String> changes, Collection<String> removals) {
+            this.changes = changes;
+            this.removals = removals;
+        }
+    }
+
+    private static final class GroupCommit {
+        private final Path path;
+        // instâncias abertas; alterado só dentro de COMMITTERS.compute
+        private int users;
+        // j.u.c em vez de wait/notify: threads virtuais em espera não prendem o carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition written = lock.newCondition();
+        private List<Pending> queue = new ArrayList<>();
+        private boolean writing = false;
+
+        GroupCommit(Path path) {
+            this.path = path;
+        }
+
+        void commit(Map<String, String> changes, Collection<String> removals) {
+            SAVES.increment();
+            Pending mine = new Pending(changes, removals);
+            List<Pending> batch;
+            boolean interrupted = false;
+            lock.lock();
+            try {
+                queue.add(mine);
+                while (writing && !mine.done) {
+                    try {
+                        written.await();
+                    } catch (InterruptedException e) {
+                        // a alteração já está na fila: espera que fique gravada
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                if (mine.done) {
+                    if (mine.error != null) {
+                        throw mine.error;
+                    }
+                    return;
+                }
+                // esta thread grava tudo o que se acumulou enquanto esperava
+                writing = true;
+                batch = queue;
+                queue = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException error = null;
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            lock.lock();
+            try {
+                for (Pending pending : batch) {
+                    pending.done = true;
+                    pending.error = error;
+                }
+                writing = false;
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        private void write(List<Pending> batch) {
+            Properties props = new Properties();
+            try (InputStream input = Files.newInputStream(path)) {
+                props.load(input);
+            } catch (NoSuchFileException e) {
+                // cofre novo
+            } catch (IOException e) {
+                // não reescreve o cofre a partir de uma leitura falhada
+                throw new RuntimeException("Erro ao ler o arquivo de passwords " + path, e);
+            }
+            for (Pending pending : batch) {
+                props.putAll(pending.changes);
+                props.keySet().removeAll(pending.removals);
+            }
+
+            try {
+                replaceAtomically(path, props);
+            } catch (IOException e) {
+                throw new RuntimeException("Erro ao salvar passwords no arquivo", e);
+            }
+            COMMITS.increment();
+        }
+    }
+
+    /**
+     * Writes {@code props} to {@code <file>.tmp}, forces it to disk and renames it over
+     * {@code file}, so a crash leaves either the old or the new contents.
+     */
+    static void replaceAtomically(Path file, Properties props) throws IOException {
+        replaceAtomically(file, props, "Passwords das Categorias");
+    }
+
+    static void replaceAtomically(Path file, Properties props, String comment) throws IOException {
+        replaceAtomically(file, output -> props.store(output, comment));
+    }
+
+    static void replaceAtomically(Path file, byte[] content) throws IOException {
+        replaceAtomically(file, output -> output.write(content));
+    }
+
+    private interface Content {
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    private static void replaceAtomically(Path file, Content content) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            content.writeTo(Channels.newOutputStream(channel));
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(file.toAbsolutePath().getParent());
+    }
+
+    private static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // nem todos os sistemas permitem abrir diretórios; o rename continua atómico
         }
     }
-}
\ No newline at end of file
+}
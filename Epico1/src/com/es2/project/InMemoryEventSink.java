@@ -0,0 +1,38 @@
+package com.es2.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent {@code capacity} events in memory, e.g. for an admin view
+ * or for tests.
+ */
+public class InMemoryEventSink implements EventSink {
+    private final ArrayDeque<SecurityEvent> events = new ArrayDeque<>();
+    private final int capacity;
+
+    public InMemoryEventSink(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity deve ser positivo");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void write(List<SecurityEvent> batch) {
+        for (SecurityEvent event : batch) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    /**
+     * Returns the retained events, oldest first.
+     */
+    public synchronized List<SecurityEvent> events() {
+        return new ArrayList<>(events);
+    }
+}
@@ -0,0 +1,192 @@
+package com.es2.project;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * File storage that loads the password file once into an in-memory index and
+ * serves reads from memory. Saves only update the index; a background task
+ * writes the file back every {@code flushIntervalMillis}, so many saves cost a
+ * single rewrite, done atomically like {@link FilePasswordStorage}'s. {@link #close()}
+ * (and JVM shutdown) flushes whatever is pending.
+ * <p>
+ * Every open storage shares one flusher thread and one shutdown hook, so a process
+ * serving many vaults (see {@link VaultHost}) does not start a thread and a hook per vault.
+ */
+public class IndexedFilePasswordStorage implements PasswordStorage {
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "password-storage-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Set<IndexedFilePasswordStorage> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(IndexedFilePasswordStorage::flushAllOpen, "password-storage-shutdown"));
+    }
+
+    private final String filePath;
+    private final long flushIntervalMillis;
+    private final Map<String, String> index = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final Object flushLock = new Object();
+    private volatile ScheduledFuture<?> flushTask;
+    // escritas partilham, close é exclusivo: nada entra no índice depois do flush final
+    private final ReentrantReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    private IndexedFilePasswordStorage(String filePath, long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis deve ser positivo");
+        }
+        this.filePath = filePath;
+        this.flushIntervalMillis = flushIntervalMillis;
+        load();
+    }
+
+    /**
+     * Loads the file and starts the background flush.
+     *
+     * @param filePath            Password file.
+     * @param flushIntervalMillis Interval between background flushes.
+     */
+    public static IndexedFilePasswordStorage open(String filePath, long flushIntervalMillis) {
+        IndexedFilePasswordStorage storage = new IndexedFilePasswordStorage(filePath, flushIntervalMillis);
+        storage.start();
+        return storage;
+    }
+
+    // fora do construtor, para as outras threads só verem o objeto já construído
+    private void start() {
+        OPEN.add(this);
+        flushTask = FLUSHER.scheduleWithFixedDelay(this::backgroundFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void flushAllOpen() {
+        for (IndexedFilePasswordStorage storage : OPEN) {
+            // um cofre com erro não impede o flush dos restantes
+            try {
+                storage.flush();
+            } catch (RuntimeException e) {
+                System.err.println("Erro no flush de " + storage.filePath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void load() {
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(filePath)) {
+            props.load(input);
+        } catch (FileNotFoundException e) {
+            return; // ficheiro ainda não existe, começa vazio
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao carregar passwords do arquivo", e);
+        }
+        for (String name : props.stringPropertyNames()) {
+            index.put(name, props.getProperty(name));
+        }
+    }
+
+    @Override
+    public void savePassword(String categoryName, String password) {
+        write(() -> index.put(categoryName, password));
+    }
+
+    @Override
+    public String loadPassword(String categoryName) {
+        return index.get(categoryName);
+    }
+
+    @Override
+    public Set<String> categoryNames() {
+        return new HashSet<>(index.keySet());
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        write(() -> index.putAll(passwords));
+    }
+
+    @Override
+    public void deleteAll(Collection<String> categoryNames) {
+        write(() -> index.keySet().removeAll(categoryNames));
+    }
+
+    private void write(Runnable change) {
+        lifecycle.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage já foi fechado");
+            }
+            change.run();
+            dirty.set(true);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the current index to disk if anything changed since the last flush.
+     */
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            if (!dirty.getAndSet(false)) {
+                return;
+            }
+            Properties props = new Properties();
+            props.putAll(index);
+            try {
+                // nunca trunca o ficheiro vivo: um crash a meio deixa o cofre anterior
+                FilePasswordStorage.replaceAtomically(Paths.get(filePath).toAbsolutePath(), props);
+            } catch (IOException e) {
+                dirty.set(true); // tenta novamente no próximo flush
+                throw new RuntimeException("Erro ao salvar passwords no arquivo", e);
+            }
+        }
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Erro no flush em background: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for in-flight saves, rejects new ones and flushes what is pending.
+     */
+    @Override
+    public void close() {
+        lifecycle.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        // um flush em background já iniciado termina antes do final, pelo flushLock
+        flushTask.cancel(false);
+        flush();
+        OPEN.remove(this);
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
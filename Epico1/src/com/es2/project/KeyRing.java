@@ -0,0 +1,213 @@
+package com.es2.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Resolves which key encrypts and decrypts each stored value, so values encrypted
+ * with different keys can coexist while a {@link KeyRotationService} runs.
+ * <p>
+ * Values written during or after a rotation are tagged {@code k<keyId>$<ciphertext>}.
+ * Untagged values belong to the configured key ({@link CryptoManager#getInstance()}),
+ * which keeps existing vaults readable as they are. A tag equal to the configured
+ * key id also resolves to it, so tagged vaults stay readable after a restart.
+ */
+public class KeyRing {
+    private static final char TAG_PREFIX = 'k';
+    private static final char TAG_END = '$';
+
+    private static volatile KeyRing instance;
+    private final Map<String, CryptoManager> keys = new ConcurrentHashMap<>();
+    private final Supplier<AppConfig> config;
+    private final Supplier<CryptoManager> configured;
+    private volatile CryptoManager writeKey;
+
+    private KeyRing() {
+        this(AppConfig::getInstance, CryptoManager::getInstance);
+    }
+
+    /**
+     * Key ring bound to a given configuration and to the CryptoManager of its
+     * configured key, e.g. those of a {@link VaultContext}.
+     */
+    KeyRing(Supplier<AppConfig> config, Supplier<CryptoManager> configured) {
+        this.config = config;
+        this.configured = configured;
+    }
+
+    public static KeyRing getInstance() {
+        KeyRing current = instance;
+        if (current == null) {
+            synchronized (KeyRing.class) {
+                current = instance;
+                if (current == null) {
+                    current = new KeyRing();
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Makes {@code key} readable and uses it for every new write.
+     *
+     * @param key The new encryption key.
+     * @return Id of the new key.
+     */
+    public String beginRotation(String key) {
+        CryptoManager crypto = CryptoManager.forKey(key, config.get());
+        keys.put(crypto.getKeyId(), crypto);
+        writeKey = crypto;
+        return crypto.getKeyId();
+    }
+
+    /**
+     * Ends a rotation: the rotated key becomes the configured one and the ring forgets
+     * and releases every other key.
+     */
+    void completeRotation(String key) {
+        config.get().applyRotatedKey(key);
+        writeKey = null;
+        List<CryptoManager> retired = new ArrayList<>(keys.values());
+        keys.clear();
+        for (CryptoManager crypto : retired) {
+            crypto.close();
+        }
+    }
+
+    /**
+     * Abandons a rotation; new writes go back to the configured key. Keys stay known
+     * so values already re-encrypted remain readable.
+     */
+    void abortRotation() {
+        writeKey = null;
+    }
+
+    /**
+     * Releases the idle ciphers of every extra key the ring knows.
+     */
+    void close() {
+        for (CryptoManager crypto : keys.values()) {
+            crypto.close();
+        }
+    }
+
+    public String getWriteKeyId() {
+        CryptoManager target = writeKey;
+        return target != null ? target.getKeyId() : getConfiguredKeyId();
+    }
+
+    /**
+     * Id of the configured key, the one untagged values belong to.
+     */
+    String getConfiguredKeyId() {
+        return configured.get().getKeyId();
+    }
+
+    public String encrypt(String password) {
+        CryptoManager target = writeKey;
+        if (target == null) {
+            return configured.get().encrypt(password);
+        }
+        return tag(target.getKeyId(), target.encrypt(password));
+    }
+
+    public String encrypt(char[] password) {
+        CryptoManager target = writeKey;
+        if (target == null) {
+            return configured.get().encrypt(password);
+        }
+        return tag(target.getKeyId(), target.encrypt(password));
+    }
+
+    public List<String> encryptAll(List<String> passwords) {
+        CryptoManager target = writeKey;
+        if (target == null) {
+            return configured.get().encryptAll(passwords);
+        }
+        List<String> encrypted = new ArrayList<>(target.encryptAll(passwords));
+        for (int i = 0; i < encrypted.size(); i++) {
+            encrypted.set(i, tag(target.getKeyId(), encrypted.get(i)));
+        }
+        return encrypted;
+    }
+
+    public String decrypt(String stored) {
+        String keyId = keyIdOf(stored);
+        if (keyId == null) {
+            return configured.get().decrypt(stored);
+        }
+        return resolve(keyId).decrypt(stored.substring(keyId.length() + 2));
+    }
+
+    /**
+     * Decrypts into {@code out} without creating a plaintext String.
+     *
+     * @return Number of chars written.
+     */
+    public int decrypt(String stored, char[] out) {
+        String keyId = keyIdOf(stored);
+        if (keyId == null) {
+            return configured.get().decrypt(stored, 0, out);
+        }
+        return resolve(keyId).decrypt(stored, keyId.length() + 2, out);
+    }
+
+    public List<String> decryptAll(List<String> stored) {
+        // agrupa por chave para cada grupo ser um único lote no CryptoManager
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < stored.size(); i++) {
+            String keyId = keyIdOf(stored.get(i));
+            groups.computeIfAbsent(keyId == null ? "" : keyId, k -> new ArrayList<>()).add(i);
+        }
+        String[] result = new String[stored.size()];
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            String keyId = group.getKey();
+            CryptoManager crypto = keyId.isEmpty() ? configured.get() : resolve(keyId);
+            int skip = keyId.isEmpty() ? 0 : keyId.length() + 2;
+            List<String> ciphertexts = new ArrayList<>(group.getValue().size());
+            for (int index : group.getValue()) {
+                ciphertexts.add(stored.get(index).substring(skip));
+            }
+            List<String> plain = crypto.decryptAll(ciphertexts);
+            for (int i = 0; i < plain.size(); i++) {
+                result[group.getValue().get(i)] = plain.get(i);
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    private CryptoManager resolve(String keyId) {
+        CryptoManager current = configured.get();
+        if (current.getKeyId().equals(keyId)) {
+            return current;
+        }
+        CryptoManager crypto = keys.get(keyId);
+        if (crypto == null) {
+            throw new IllegalStateException("Chave desconhecida: " + keyId);
+        }
+        return crypto;
+    }
+
+    private static String tag(String keyId, String ciphertext) {
+        return TAG_PREFIX + keyId + TAG_END + ciphertext;
+    }
+
+    /**
+     * Returns the key id a stored value is tagged with, or null for untagged values.
+     * Base64 never contains '$', so untagged ciphertexts cannot be mistaken for tags.
+     */
+    static String keyIdOf(String stored) {
+        if (stored.isEmpty() || stored.charAt(0) != TAG_PREFIX) {
+            return null;
+        }
+        int end = stored.indexOf(TAG_END);
+        return end > 1 ? stored.substring(1, end) : null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.es2.project;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rotates the encryption key without taking the vault offline.
+ * <p>
+ * {@link #start(String)} registers the new key in the {@link KeyRing}, so reads keep
+ * working with both keys and every new write already uses the new one. A background
+ * thread then re-encrypts the existing categories in batches of {@code batchSize},
+ * sleeping {@code pauseMillis} between batches to limit the impact on live traffic.
+ * When every batch is done the new key becomes the configured key. Progress can be
+ * followed with {@link #getProcessed()}, {@link #getTotal()} and {@link #getState()}.
+ * <p>
+ * A failed or cancelled rotation migrates the values it already re-encrypted back to
+ * the configured key before it ends, so the vault never depends on a key that only
+ * lived in memory. If the process stops mid-rotation instead, start the rotation again
+ * with the same key after restarting: it reads both keys and finishes the migration.
+ * Values already under the target key are always skipped.
+ */
+public class KeyRotationService {
+    public enum State { IDLE, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final StorageManager storageManager;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger migrated = new AtomicInteger();
+    private volatile int total;
+    private volatile State state = State.IDLE;
+    private volatile Exception failure;
+    private volatile boolean cancelled;
+    private Thread worker;
+
+    public KeyRotationService(StorageManager storageManager, int batchSize, long pauseMillis) {
+        if (batchSize <= 0 || pauseMillis < 0) {
+            throw new IllegalArgumentException("batchSize deve ser positivo e pauseMillis não negativo");
+        }
+        this.storageManager = storageManager;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Starts re-encrypting the vault with {@code newKey} in the background.
+     *
+     * @param newKey The new encryption key.
+     * @throws IllegalArgumentException if the key is empty or null.
+     * @throws IllegalStateException if a rotation is already running.
+     */
+    public synchronized void start(String newKey) {
+        if (newKey == null || newKey.isBlank()) {
+            throw new IllegalArgumentException("EncryptionKey não pode ser vazia!");
+        }
+        if (state == State.RUNNING) {
+            throw new IllegalStateException("Já existe uma rotação de chave em curso");
+        }
+        List<String> names = storageManager.beginRotation(newKey);
+
+        total = names.size();
+        processed.set(0);
+        migrated.set(0);
+        failure = null;
+        cancelled = false;
+        state = State.RUNNING;
+
+        worker = new Thread(() -> run(newKey, names), "key-rotation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run(String newKey, List<String> names) {
+        State outcome;
+        try {
+            for (int from = 0; from < names.size() && !cancelled; from += batchSize) {
+                List<String> batch = names.subList(from, Math.min(from + batchSize, names.size()));
+                migrated.addAndGet(storageManager.reencrypt(batch));
+                processed.addAndGet(batch.size());
+                if (pauseMillis > 0 && processed.get() < total) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+            if (!cancelled) {
+                storageManager.getKeyRing().completeRotation(newKey);
+                state = State.COMPLETED;
+                return;
+            }
+            outcome = State.CANCELLED;
+        } catch (InterruptedException e) {
+            outcome = State.CANCELLED;
+        } catch (RuntimeException e) {
+            failure = e;
+            outcome = State.FAILED;
+        }
+
+        try {
+            // desfaz a migração para o cofre não depender de uma chave só em memória
+            storageManager.abortRotation(batchSize);
+            state = outcome;
+        } catch (RuntimeException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            state = State.FAILED;
+        }
+    }
+
+    /**
+     * Asks the running rotation to stop after the current batch.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Waits for the running rotation to finish.
+     *
+     * @param timeoutMillis Maximum time to wait.
+     * @return true if no rotation is running anymore.
+     */
+    public boolean awaitCompletion(long timeoutMillis) throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            current = worker;
+        }
+        if (current != null) {
+            current.join(timeoutMillis);
+        }
+        return state != State.RUNNING;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    public int getMigrated() {
+        return migrated.get();
+    }
+
+    /**
+     * Gets the fraction of categories processed so far.
+     *
+     * @return Value between 0 and 1.
+     */
+    public double getProgress() {
+        int all = total;
+        return all == 0 ? (state == State.RUNNING ? 0 : 1) : (double) processed.get() / all;
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+}
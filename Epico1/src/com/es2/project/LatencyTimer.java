@@ -0,0 +1,77 @@
+package com.es2.project;
+
+/**
+ * Counts and times one operation of one layer. Call sites use
+ * <pre>
+ *     long start = TIMER.start();
+ *     try { ... } finally { TIMER.stop(start); }
+ * </pre>
+ * While metrics are disabled {@link #start()} returns 0 without reading the clock and
+ * {@link #stop(long)} does nothing, so the cost is one volatile read.
+ */
+public final class LatencyTimer implements LatencyTimerMXBean {
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    LatencyTimer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long start() {
+        return MetricsRegistry.enabled ? System.nanoTime() : 0L;
+    }
+
+    public void stop(long start) {
+        if (start != 0L) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return histogram.getMean() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return histogram.getPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return histogram.getPercentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return histogram.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return histogram.getPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return histogram.getMax() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+    }
+}
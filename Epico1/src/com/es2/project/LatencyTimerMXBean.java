@@ -0,0 +1,15 @@
+package com.es2.project;
+
+/**
+ * JMX view of a {@link LatencyTimer}. Latencies are in microseconds.
+ */
+public interface LatencyTimerMXBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
@@ -5,9 +5,14 @@ public class LeafCategory extends Category {
         super(name, storageManager);
     }
 
+    @Override
+    protected String describe(String password) {
+        return "Leaf " + getName() + " | password " + password;
+    }
+
     @Override
     public void display() {
-        System.out.println("Leaf " + getName() + " | password " + getPassword());
+        System.out.println(describe(getPassword()));
     }
 }
 
@@ -0,0 +1,418 @@
+package com.es2.project;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only storage: every save is appended as a record to the active segment
+ * file and an in-memory index maps each category to the location of its latest value.
+ * <p>
+ * Record layout: {@code crc(int) keyLength(int) valueLength(int) key value}, where the
+ * CRC covers key and value. A deletion appends a tombstone, a record with
+ * {@code valueLength} {@value #TOMBSTONE} and no value. When the active segment grows past {@code maxSegmentBytes}
+ * a new one is started. Compaction merges all closed segments into one, keeping only
+ * the entries the index still points at (so tombstones disappear too), and writes a {@code .hint} file next to it so
+ * the next startup reads the hint instead of the values. Only segments without a hint
+ * (the log tail) are replayed record by record; a torn record at the end is truncated.
+ */
+public class LogStructuredPasswordStorage implements PasswordStorage {
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 4L * 1024 * 1024;
+    public static final long DEFAULT_COMPACTION_INTERVAL_MS = 60_000;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String HINT_SUFFIX = ".hint";
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+
+    private static final class Location {
+        final long segmentId;
+        final long valueOffset;
+        final int valueLength;
+
+        Location(long segmentId, long valueOffset, int valueLength) {
+            this.segmentId = segmentId;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+        }
+    }
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final TreeMap<Long, FileChannel> segments = new TreeMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService compactor;
+    private FileChannel active;
+    private long activeId;
+    private volatile boolean closed = false;
+
+    private LogStructuredPasswordStorage(String directory, long maxSegmentBytes) {
+        this.directory = Paths.get(directory);
+        this.maxSegmentBytes = maxSegmentBytes;
+        try {
+            Files.createDirectories(this.directory);
+            recover();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao abrir o log de passwords", e);
+        }
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "password-log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static LogStructuredPasswordStorage open(String directory) {
+        return open(directory, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_COMPACTION_INTERVAL_MS);
+    }
+
+    /**
+     * Recovers the log in {@code directory} and starts the background compaction.
+     *
+     * @param compactionIntervalMillis Interval between compactions, 0 to compact only on demand.
+     */
+    public static LogStructuredPasswordStorage open(String directory, long maxSegmentBytes, long compactionIntervalMillis) {
+        LogStructuredPasswordStorage storage = new LogStructuredPasswordStorage(directory, maxSegmentBytes);
+        if (compactionIntervalMillis > 0) {
+            // só depois de construído, para o compactador ver o objeto completo
+            storage.compactor.scheduleWithFixedDelay(storage::backgroundCompact,
+                    compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return storage;
+    }
+
+    private void backgroundCompact() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            System.err.println("Erro na compactação: " + e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("segment-%010d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private Path hintPath(long id) {
+        return directory.resolve(String.format("segment-%010d%s", id, HINT_SUFFIX));
+    }
+
+    private void recover() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*" + SEGMENT_SUFFIX)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                ids.add(Long.parseLong(name.substring("segment-".length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+
+        for (long id : ids) {
+            FileChannel channel = FileChannel.open(segmentPath(id), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(id, channel);
+            if (Files.exists(hintPath(id))) {
+                loadHint(id);
+            } else {
+                replay(id, channel);
+            }
+        }
+
+        if (ids.isEmpty()) {
+            openNewSegment(1);
+        } else {
+            activeId = ids.get(ids.size() - 1);
+            active = segments.get(activeId);
+            active.position(active.size());
+        }
+    }
+
+    private void loadHint(long id) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(hintPath(id))))) {
+            while (true) {
+                String key;
+                try {
+                    key = in.readUTF();
+                } catch (EOFException e) {
+                    return;
+                }
+                index.put(key, new Location(id, in.readLong(), in.readInt()));
+            }
+        }
+    }
+
+    private void replay(long id, FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int crc = header.getInt();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            boolean tombstone = valueLength == TOMBSTONE;
+            long end = position + HEADER_SIZE + keyLength + (tombstone ? 0 : valueLength);
+            if (keyLength < 0 || (valueLength < 0 && !tombstone) || end > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate((int) (end - position - HEADER_SIZE));
+            channel.read(body, position + HEADER_SIZE);
+            if (crc != checksum(body.array())) {
+                break;
+            }
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            if (tombstone) {
+                index.remove(key);
+            } else {
+                index.put(key, new Location(id, position + HEADER_SIZE + keyLength, valueLength));
+            }
+            position = end;
+        }
+        if (position < size) {
+            // registo incompleto no fim do log (crash a meio de uma escrita)
+            channel.truncate(position);
+        }
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private void openNewSegment(long id) throws IOException {
+        activeId = id;
+        active = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active.position(active.size());
+        segments.put(id, active);
+    }
+
+    /**
+     * Encodes a record; a null {@code value} encodes a tombstone.
+     */
+    private static ByteBuffer encode(String key, String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        byte[] body = new byte[keyBytes.length + valueBytes.length];
+        System.arraycopy(keyBytes, 0, body, 0, keyBytes.length);
+        System.arraycopy(valueBytes, 0, body, keyBytes.length, valueBytes.length);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        record.putInt(checksum(body)).putInt(keyBytes.length).putInt(value == null ? TOMBSTONE : valueBytes.length).put(body);
+        record.flip();
+        return record;
+    }
+
+    private long append(FileChannel channel, ByteBuffer record) throws IOException {
+        long start = channel.position();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        return start;
+    }
+
+    @Override
+    public void savePassword(String categoryName, String password) {
+        ByteBuffer record = encode(categoryName, password);
+        int keyLength = record.getInt(4);
+        int valueLength = record.getInt(8);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage já foi fechado");
+            }
+            if (active.position() >= maxSegmentBytes) {
+                openNewSegment(activeId + 1);
+            }
+            long start = append(active, record);
+            index.put(categoryName, new Location(activeId, start + HEADER_SIZE + keyLength, valueLength));
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao salvar password no log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> categoryNames() {
+        return new HashSet<>(index.keySet());
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        // um único lock para o lote inteiro; os registos ficam contíguos no segmento
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, String> entry : passwords.entrySet()) {
+                savePassword(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a tombstone for every category that exists, under a single lock.
+     */
+    @Override
+    public void deleteAll(Collection<String> categoryNames) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage já foi fechado");
+            }
+            for (String name : categoryNames) {
+                if (!index.containsKey(name)) {
+                    continue;
+                }
+                if (active.position() >= maxSegmentBytes) {
+                    openNewSegment(activeId + 1);
+                }
+                append(active, encode(name, null));
+                index.remove(name);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao apagar passwords do log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String loadPassword(String categoryName) {
+        lock.readLock().lock();
+        try {
+            Location location = index.get(categoryName);
+            if (location == null) {
+                return null;
+            }
+            return readValue(location);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao carregar password do log", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String readValue(Location location) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(location.valueLength);
+        FileChannel channel = segments.get(location.segmentId);
+        while (value.hasRemaining()) {
+            if (channel.read(value, location.valueOffset + value.position()) < 0) {
+                throw new EOFException("Segmento " + location.segmentId + " truncado");
+            }
+        }
+        return new String(value.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Merges every closed segment into a single new segment holding only live entries.
+     * The active segment is rolled first so that all current data takes part.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (active.size() > 0) {
+                openNewSegment(activeId + 1);
+            }
+            List<Long> old = new ArrayList<>(segments.headMap(activeId).keySet());
+            if (old.isEmpty() || (old.size() == 1 && Files.exists(hintPath(old.get(0))))) {
+                return; // nada para compactar
+            }
+
+            // o segmento ativo (vazio) passa a receber o resultado e abre-se um novo a seguir
+            long mergedId = activeId;
+            FileChannel merged = active;
+            openNewSegment(activeId + 1);
+            Map<String, Location> moved = new HashMap<>();
+            Path tmpHint = directory.resolve(hintPath(mergedId).getFileName() + ".tmp");
+            try (DataOutputStream hint = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpHint)))) {
+                for (Map.Entry<String, Location> entry : index.entrySet()) {
+                    Location location = entry.getValue();
+                    if (location.segmentId >= mergedId) {
+                        continue;
+                    }
+                    ByteBuffer record = encode(entry.getKey(), readValue(location));
+                    int keyLength = record.getInt(4);
+                    long start = append(merged, record);
+                    Location newLocation = new Location(mergedId, start + HEADER_SIZE + keyLength, location.valueLength);
+                    moved.put(entry.getKey(), newLocation);
+                    hint.writeUTF(entry.getKey());
+                    hint.writeLong(newLocation.valueOffset);
+                    hint.writeInt(newLocation.valueLength);
+                }
+            }
+            merged.force(true);
+            Files.move(tmpHint, hintPath(mergedId), StandardCopyOption.ATOMIC_MOVE);
+            index.putAll(moved);
+
+            for (long id : old) {
+                segments.remove(id).close();
+                Files.deleteIfExists(segmentPath(id));
+                Files.deleteIfExists(hintPath(id));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao compactar o log de passwords", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                active.force(false);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao sincronizar o log de passwords", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            active.force(false);
+            closed = true;
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao fechar o log de passwords", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package com.es2.project;
 
+import java.util.Map;
+
 public class MFADecorator extends PasswordManagerDecorator {
+    private final EventPipeline events;
+
     public MFADecorator(PasswordManager toDecorate) {
+        this(toDecorate, EventPipeline.getInstance());
+    }
+
+    public MFADecorator(PasswordManager toDecorate, EventPipeline events) {
         super(toDecorate);
+        this.events = events;
     }
 
     @Override
@@ -14,8 +23,17 @@ public class MFADecorator extends PasswordManagerDecorator {
         }
     }
 
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        if (verifyMFA()) { // uma verificação para o lote inteiro
+            super.saveAll(passwords);
+        } else {
+            throw new SecurityException("MFA verification failed!");
+        }
+    }
+
     private boolean verifyMFA() {
-        System.out.println("[MFA] Sending verification code...");
+        events.publish(new SecurityEvent(SecurityEvent.Type.MFA, "Sending verification code..."));
         // Simulate MFA check (e.g., SMS/email code)
         return true; // Assume verification passed
     }
@@ -0,0 +1,407 @@
+package com.es2.project;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Binary vault file accessed through a {@link MappedByteBuffer}.
+ * <p>
+ * Layout: a fixed header, an open-addressing (linear probing) table of
+ * {@code capacity} slots and a data region of records. The header records where the
+ * table starts, right after it in a new file. Each slot holds the offset
+ * of a record and the hash of its key; each record is
+ * {@code keyLength(int) valueCapacity(int) valueLength(int) key value}. A lookup is a
+ * hash probe followed by a bulk read of the value straight from the mapping, so there
+ * is no Properties parsing nor escaping. Values that still fit their record are
+ * overwritten in place; larger ones are appended and the slot is repointed. Deleting
+ * empties the slot and shifts the rest of its probe run back, so lookups need no
+ * tombstones. When the table passes {@link #MAX_LOAD_FACTOR} a table with twice the
+ * slots is built at the end of the same file, which is only remapped larger, and the
+ * header is switched to it once it is on disk. The file is never replaced, so growing
+ * works while the mapping is alive on every platform, and a crash leaves either table.
+ * Superseded records and old tables stay in the file as unused space.
+ */
+public class MappedPasswordStorage implements PasswordStorage {
+    public static final int DEFAULT_CAPACITY = 1024;
+    static final double MAX_LOAD_FACTOR = 0.7;
+
+    private static final int MAGIC = 0x50575631; // "PWV1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_CAPACITY = 8;
+    private static final int OFF_COUNT = 12;
+    private static final int OFF_DATA_END = 16;
+    private static final int OFF_TABLE = 24; // 0 em cofres antigos: tabela logo após o header
+    private static final int SLOT_SIZE = 16;
+    private static final int RECORD_HEADER = 12;
+    private static final int VALUE_ALIGN = 16;
+
+    private final Path path;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long table;
+    private int capacity;
+    private int count;
+    private long dataEnd;
+    private boolean closed = false;
+
+    public MappedPasswordStorage(String filePath) {
+        this(filePath, DEFAULT_CAPACITY);
+    }
+
+    public MappedPasswordStorage(String filePath, int initialCapacity) {
+        this.path = Paths.get(filePath);
+        try {
+            open(Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao abrir o cofre binário", e);
+        }
+    }
+
+    private void open(int newCapacity) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            capacity = newCapacity;
+            count = 0;
+            table = HEADER_SIZE;
+            dataEnd = table + (long) capacity * SLOT_SIZE;
+            map(dataEnd);
+            buffer.putInt(OFF_MAGIC, MAGIC);
+            buffer.putInt(OFF_VERSION, VERSION);
+            buffer.putInt(OFF_CAPACITY, capacity);
+            buffer.putLong(OFF_TABLE, table);
+            writeCounters();
+        } else {
+            map(channel.size());
+            if (buffer.getInt(OFF_MAGIC) != MAGIC || buffer.getInt(OFF_VERSION) != VERSION) {
+                channel.close();
+                throw new IOException("Formato de cofre inválido: " + path);
+            }
+            capacity = buffer.getInt(OFF_CAPACITY);
+            table = buffer.getLong(OFF_TABLE) == 0 ? HEADER_SIZE : buffer.getLong(OFF_TABLE);
+            count = buffer.getInt(OFF_COUNT);
+            dataEnd = buffer.getLong(OFF_DATA_END);
+        }
+    }
+
+    private int slotAt(int index) {
+        return (int) (table + (long) index * SLOT_SIZE);
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Cofre excede o tamanho máximo mapeável");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void ensureMapped(long size) throws IOException {
+        if (size > buffer.capacity()) {
+            map(Math.max(size, Math.min((long) buffer.capacity() * 2, Integer.MAX_VALUE)));
+        }
+    }
+
+    private void writeCounters() {
+        buffer.putInt(OFF_COUNT, count);
+        buffer.putLong(OFF_DATA_END, dataEnd);
+    }
+
+    private static int hash(byte[] key) {
+        int h = 1;
+        for (byte b : key) {
+            h = 31 * h + b;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the slot holding {@code key} or the empty slot where it would be inserted.
+     */
+    private int probe(byte[] key, int hash) {
+        int mask = capacity - 1;
+        int index = hash & mask;
+        while (true) {
+            int slot = slotAt(index);
+            long record = buffer.getLong(slot);
+            if (record == 0 || (buffer.getInt(slot + 8) == hash && keyEquals((int) record, key))) {
+                return slot;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private boolean keyEquals(int record, byte[] key) {
+        if (buffer.getInt(record) != key.length) {
+            return false;
+        }
+        int start = record + RECORD_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void savePassword(String categoryName, String password) {
+        byte[] key = categoryName.getBytes(StandardCharsets.UTF_8);
+        byte[] value = password.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+
+        lock.writeLock().lock();
+        try {
+            // o mapeamento continua gravável depois de close(): recusa aqui
+            if (closed) {
+                throw new IllegalStateException("Storage já foi fechado");
+            }
+            int slot = probe(key, hash);
+            long record = buffer.getLong(slot);
+            if (record != 0) {
+                int rec = (int) record;
+                if (buffer.getInt(rec + 4) >= value.length) {
+                    buffer.put(rec + RECORD_HEADER + key.length, value);
+                    buffer.putInt(rec + 8, value.length);
+                    return;
+                }
+            } else if (count + 1 > capacity * MAX_LOAD_FACTOR) {
+                rebuild(capacity * 2);
+                slot = probe(key, hash);
+            }
+
+            long offset = appendRecord(key, value);
+            if (buffer.getLong(slot) == 0) {
+                count++;
+            }
+            buffer.putInt(slot + 8, hash);
+            buffer.putLong(slot, offset);
+            writeCounters();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao salvar password no cofre binário", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long appendRecord(byte[] key, byte[] value) throws IOException {
+        int valueCapacity = (value.length + VALUE_ALIGN - 1) / VALUE_ALIGN * VALUE_ALIGN;
+        long offset = dataEnd;
+        ensureMapped(offset + RECORD_HEADER + key.length + valueCapacity);
+        int rec = (int) offset;
+        buffer.putInt(rec, key.length);
+        buffer.putInt(rec + 4, valueCapacity);
+        buffer.putInt(rec + 8, value.length);
+        buffer.put(rec + RECORD_HEADER, key);
+        buffer.put(rec + RECORD_HEADER + key.length, value);
+        dataEnd = offset + RECORD_HEADER + key.length + valueCapacity;
+        return offset;
+    }
+
+    @Override
+    public String loadPassword(String categoryName) {
+        byte[] key = categoryName.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+
+        lock.readLock().lock();
+        try {
+            long record = buffer.getLong(probe(key, hash));
+            if (record == 0) {
+                return null;
+            }
+            int rec = (int) record;
+            byte[] value = new byte[buffer.getInt(rec + 8)];
+            buffer.get(rec + RECORD_HEADER + key.length, value);
+            return new String(value, StandardCharsets.UTF_8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> categoryNames() {
+        return entries().keySet();
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage já foi fechado");
+            }
+            for (Map.Entry<String, String> entry : passwords.entrySet()) {
+                savePassword(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> categoryNames) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Storage já foi fechado");
+            }
+            for (String name : categoryNames) {
+                byte[] key = name.getBytes(StandardCharsets.UTF_8);
+                int slot = probe(key, hash(key));
+                if (buffer.getLong(slot) != 0) {
+                    removeSlot(slot);
+                    count--;
+                }
+            }
+            writeCounters();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empties {@code slot} and moves back the following entries of its probe run that
+     * would otherwise no longer be reachable from their home slot.
+     */
+    private void removeSlot(int slot) {
+        int mask = capacity - 1;
+        int hole = (int) ((slot - table) / SLOT_SIZE);
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            int next = slotAt(index);
+            long record = buffer.getLong(next);
+            if (record == 0) {
+                break;
+            }
+            int hash = buffer.getInt(next + 8);
+            int home = hash & mask;
+            // fica onde está se a posição de origem estiver entre o buraco e ela (circularmente)
+            boolean reachable = hole <= index ? (hole < home && home <= index) : (hole < home || home <= index);
+            if (!reachable) {
+                int target = slotAt(hole);
+                buffer.putLong(target, record);
+                buffer.putInt(target + 8, hash);
+                hole = index;
+            }
+        }
+        int target = slotAt(hole);
+        buffer.putLong(target, 0);
+        buffer.putInt(target + 8, 0);
+    }
+
+    /**
+     * Returns every entry in the vault, in slot order.
+     */
+    public Map<String, String> entries() {
+        lock.readLock().lock();
+        try {
+            Map<String, String> entries = new LinkedHashMap<>();
+            for (int i = 0; i < capacity; i++) {
+                long record = buffer.getLong(slotAt(i));
+                if (record == 0) {
+                    continue;
+                }
+                int rec = (int) record;
+                byte[] key = new byte[buffer.getInt(rec)];
+                byte[] value = new byte[buffer.getInt(rec + 8)];
+                buffer.get(rec + RECORD_HEADER, key);
+                buffer.get(rec + RECORD_HEADER + key.length, value);
+                entries.put(new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds a table of {@code newCapacity} slots after the data region, pointing at the
+     * existing records, and switches the header to it once it is on disk. Caller must
+     * hold the write lock.
+     */
+    private void rebuild(int newCapacity) throws IOException {
+        long newTable = (dataEnd + SLOT_SIZE - 1) / SLOT_SIZE * SLOT_SIZE;
+        long newDataEnd = newTable + (long) newCapacity * SLOT_SIZE;
+        ensureMapped(newDataEnd);
+        // pode haver restos de um crescimento interrompido
+        for (long offset = newTable; offset < newDataEnd; offset += 8) {
+            buffer.putLong((int) offset, 0);
+        }
+        int mask = newCapacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            int slot = slotAt(i);
+            long record = buffer.getLong(slot);
+            if (record == 0) {
+                continue;
+            }
+            int hash = buffer.getInt(slot + 8);
+            int index = hash & mask;
+            while (buffer.getLong((int) (newTable + (long) index * SLOT_SIZE)) != 0) {
+                index = (index + 1) & mask;
+            }
+            int target = (int) (newTable + (long) index * SLOT_SIZE);
+            buffer.putLong(target, record);
+            buffer.putInt(target + 8, hash);
+        }
+        // a tabela nova chega ao disco antes do header que aponta para ela
+        buffer.force();
+        table = newTable;
+        capacity = newCapacity;
+        dataEnd = newDataEnd;
+        buffer.putInt(OFF_CAPACITY, capacity);
+        buffer.putLong(OFF_TABLE, table);
+        writeCounters();
+        buffer.force();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the mapping to disk and closes the file. Reads keep working on the mapping;
+     * saves are rejected.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao fechar o cofre binário", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.es2.project;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Times the calls into a {@link PasswordStorage} and counts the bytes of the values
+ * written and read ({@code storage.*} metrics). Stored values are Base64, so their
+ * length in chars is their size in bytes.
+ */
+public class MeteredPasswordStorage implements PasswordStorage {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final LatencyTimer SAVE = METRICS.timer("storage.save");
+    private static final LatencyTimer LOAD = METRICS.timer("storage.load");
+    private static final LatencyTimer SAVE_ALL = METRICS.timer("storage.saveAll");
+    private static final LatencyTimer LOAD_ALL = METRICS.timer("storage.loadAll");
+    private static final LatencyTimer DELETE_ALL = METRICS.timer("storage.deleteAll");
+    private static final LatencyTimer FLUSH = METRICS.timer("storage.flush");
+    private static final MetricCounter BYTES_WRITTEN = METRICS.counter("storage.bytes.written");
+    private static final MetricCounter BYTES_READ = METRICS.counter("storage.bytes.read");
+
+    private final PasswordStorage delegate;
+
+    public MeteredPasswordStorage(PasswordStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void savePassword(String categoryName, String password) {
+        long start = SAVE.start();
+        try {
+            delegate.savePassword(categoryName, password);
+        } finally {
+            SAVE.stop(start);
+        }
+        BYTES_WRITTEN.add(password.length());
+    }
+
+    @Override
+    public String loadPassword(String categoryName) {
+        long start = LOAD.start();
+        String password;
+        try {
+            password = delegate.loadPassword(categoryName);
+        } finally {
+            LOAD.stop(start);
+        }
+        if (password != null) {
+            BYTES_READ.add(password.length());
+        }
+        return password;
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        long start = SAVE_ALL.start();
+        try {
+            delegate.saveAll(passwords);
+        } finally {
+            SAVE_ALL.stop(start);
+        }
+        if (METRICS.isEnabled()) {
+            BYTES_WRITTEN.add(totalLength(passwords));
+        }
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categoryNames) {
+        long start = LOAD_ALL.start();
+        Map<String, String> passwords;
+        try {
+            passwords = delegate.loadAll(categoryNames);
+        } finally {
+            LOAD_ALL.stop(start);
+        }
+        if (METRICS.isEnabled()) {
+            BYTES_READ.add(totalLength(passwords));
+        }
+        return passwords;
+    }
+
+    private static long totalLength(Map<String, String> passwords) {
+        long total = 0;
+        for (String password : passwords.values()) {
+            total += password.length();
+        }
+        return total;
+    }
+
+    @Override
+    public Set<String> categoryNames() {
+        return delegate.categoryNames();
+    }
+
+    @Override
+    public void deleteAll(Collection<String> categoryNames) {
+        long start = DELETE_ALL.start();
+        try {
+            delegate.deleteAll(categoryNames);
+        } finally {
+            DELETE_ALL.stop(start);
+        }
+    }
+
+    @Override
+    public void flush() {
+        long start = FLUSH.start();
+        try {
+            delegate.flush();
+        } finally {
+            FLUSH.stop(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
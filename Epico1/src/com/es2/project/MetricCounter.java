@@ -0,0 +1,41 @@
+package com.es2.project;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter (events, bytes) that does nothing while metrics are disabled.
+ */
+public final class MetricCounter implements MetricCounterMXBean {
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    MetricCounter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        if (MetricsRegistry.enabled) {
+            value.increment();
+        }
+    }
+
+    public void add(long amount) {
+        if (MetricsRegistry.enabled) {
+            value.add(amount);
+        }
+    }
+
+    @Override
+    public long getValue() {
+        return value.sum();
+    }
+
+    @Override
+    public void reset() {
+        value.reset();
+    }
+}
@@ -0,0 +1,9 @@
+package com.es2.project;
+
+/**
+ * JMX view of a {@link MetricCounter}.
+ */
+public interface MetricCounterMXBean {
+    long getValue();
+    void reset();
+}
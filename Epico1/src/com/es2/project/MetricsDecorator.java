@@ -0,0 +1,65 @@
+package com.es2.project;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Times every call into the wrapped manager under {@code <layer>.<operation>}. Placing
+ * one between decorators shows how much each layer adds, e.g.
+ * {@code new MetricsDecorator("alert", new SecurityAlertDecorator(new MetricsDecorator("mfa", ...)))}.
+ */
+public class MetricsDecorator extends PasswordManagerDecorator {
+    private final LatencyTimer save;
+    private final LatencyTimer get;
+    private final LatencyTimer saveAll;
+    private final LatencyTimer loadAll;
+
+    public MetricsDecorator(String layer, PasswordManager toDecorate) {
+        super(toDecorate);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.save = metrics.timer(layer + ".save");
+        this.get = metrics.timer(layer + ".get");
+        this.saveAll = metrics.timer(layer + ".saveAll");
+        this.loadAll = metrics.timer(layer + ".loadAll");
+    }
+
+    @Override
+    public void savePassword(String category, String password) {
+        long start = save.start();
+        try {
+            super.savePassword(category, password);
+        } finally {
+            save.stop(start);
+        }
+    }
+
+    @Override
+    public String getPassword(String category) {
+        long start = get.start();
+        try {
+            return super.getPassword(category);
+        } finally {
+            get.stop(start);
+        }
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        long start = saveAll.start();
+        try {
+            super.saveAll(passwords);
+        } finally {
+            saveAll.stop(start);
+        }
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categories) {
+        long start = loadAll.start();
+        try {
+            return super.loadAll(categories);
+        } finally {
+            loadAll.stop(start);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.es2.project;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the timers and counters of every layer, named {@code <layer>.<operation>}
+ * (e.g. {@code crypto.encrypt}, {@code storage.bytes.written}).
+ * <p>
+ * Layers keep their timers and counters in static fields, so recording never looks
+ * anything up. Everything is off until {@link #setEnabled(boolean)}, which
+ * {@link AppConfig} calls with {@code metrics.enabled}; with {@code metrics.jmx} the
+ * metrics are also registered as MXBeans under {@code com.es2.project:type=Metrics}.
+ */
+public class MetricsRegistry {
+    private static final String JMX_DOMAIN = "com.es2.project";
+
+    static volatile boolean enabled = false;
+    private static MetricsRegistry instance;
+
+    private final Map<String, LatencyTimer> timers = new ConcurrentHashMap<>();
+    private final Map<String, MetricCounter> counters = new ConcurrentHashMap<>();
+    private volatile boolean jmx = false;
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    public LatencyTimer timer(String name) {
+        return timers.computeIfAbsent(name, n -> {
+            LatencyTimer timer = new LatencyTimer(n);
+            if (jmx) {
+                register("Timer", n, timer);
+            }
+            return timer;
+        });
+    }
+
+    public MetricCounter counter(String name) {
+        return counters.computeIfAbsent(name, n -> {
+            MetricCounter counter = new MetricCounter(n);
+            if (jmx) {
+                register("Counter", n, counter);
+            }
+            return counter;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        MetricsRegistry.enabled = enabled;
+    }
+
+    /**
+     * Registers every current and future metric with the platform MBean server.
+     */
+    public synchronized void enableJmx() {
+        if (jmx) {
+            return;
+        }
+        jmx = true;
+        for (LatencyTimer timer : timers.values()) {
+            register("Timer", timer.getName(), timer);
+        }
+        for (MetricCounter counter : counters.values()) {
+            register("Counter", counter.getName(), counter);
+        }
+    }
+
+    private static void register(String kind, String name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Metrics,kind=" + kind + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Erro ao registar métrica " + name + " no JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a one-line summary per metric, sorted by name.
+     */
+    public Map<String, String> snapshot() {
+        Map<String, String> lines = new TreeMap<>();
+        for (LatencyTimer timer : timers.values()) {
+            lines.put(timer.getName(), String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                    timer.getCount(), timer.getMeanMicros(), timer.getP50Micros(), timer.getP99Micros(), timer.getMaxMicros()));
+        }
+        for (MetricCounter counter : counters.values()) {
+            lines.put(counter.getName(), String.valueOf(counter.getValue()));
+        }
+        return lines;
+    }
+
+    public void reset() {
+        timers.values().forEach(LatencyTimer::reset);
+        counters.values().forEach(MetricCounter::reset);
+    }
+}
@@ -0,0 +1,50 @@
+package com.es2.project;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * One-shot import of a Properties password file (the {@code resources/PasswordFile}
+ * format written by {@link FilePasswordStorage}) into a {@link MappedPasswordStorage} vault.
+ * Values are copied as they are, so they stay encrypted with the current key.
+ */
+public final class PasswordFileConverter {
+
+    private PasswordFileConverter() {
+    }
+
+    /**
+     * Copies every entry of the Properties file into the binary vault.
+     *
+     * @param propertiesPath Path of the existing password file.
+     * @param vaultPath      Path of the binary vault (created if missing).
+     * @return Number of imported entries.
+     */
+    public static int convert(String propertiesPath, String vaultPath) {
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(propertiesPath)) {
+            props.load(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler o arquivo de passwords " + propertiesPath, e);
+        }
+
+        int capacity = (int) Math.ceil(props.size() / MappedPasswordStorage.MAX_LOAD_FACTOR) + 1;
+        try (MappedPasswordStorage vault = new MappedPasswordStorage(vaultPath, Math.max(capacity, MappedPasswordStorage.DEFAULT_CAPACITY))) {
+            for (String name : props.stringPropertyNames()) {
+                vault.savePassword(name, props.getProperty(name));
+            }
+        }
+        return props.size();
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Uso: PasswordFileConverter <PasswordFile> <vault>");
+            System.exit(1);
+        }
+        int imported = convert(args[0], args[1]);
+        System.out.println("Importadas " + imported + " passwords para " + args[1]);
+    }
+}
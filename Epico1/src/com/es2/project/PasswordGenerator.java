@@ -1,5 +1,8 @@
 package com.es2.project;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Interface for password generation strategies.
  */
@@ -11,4 +14,22 @@ public interface PasswordGenerator {
      * @return A generated password.
      */
     String generate(int length);
-}
\ No newline at end of file
+
+    /**
+     * Generates many passwords of the same length at once, for bulk provisioning.
+     *
+     * @param count  How many passwords to generate.
+     * @param length The length of each password.
+     * @return The generated passwords.
+     */
+    default List<String> generateBatch(int count, int length) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count não pode ser negativo");
+        }
+        List<String> passwords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            passwords.add(generate(length));
+        }
+        return passwords;
+    }
+}
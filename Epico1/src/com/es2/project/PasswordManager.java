@@ -1,7 +1,28 @@
 package com.es2.project;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
 public interface PasswordManager {
     void savePassword(String category, String password);
     String getPassword(String category);
+
+    default void saveAll(Map<String, String> passwords) {
+        for (Map.Entry<String, String> entry : passwords.entrySet()) {
+            savePassword(entry.getKey(), entry.getValue());
+        }
+    }
+
+    default Map<String, String> loadAll(Collection<String> categories) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String category : categories) {
+            String password = getPassword(category);
+            if (password != null) {
+                result.put(category, password);
+            }
+        }
+        return result;
+    }
 }
\ No newline at end of file
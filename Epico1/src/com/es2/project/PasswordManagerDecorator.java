@@ -1,5 +1,8 @@
 package com.es2.project;
 
+import java.util.Collection;
+import java.util.Map;
+
 public abstract class PasswordManagerDecorator implements PasswordManager {
     protected PasswordManager wrapped;
 
@@ -16,4 +19,14 @@ public abstract class PasswordManagerDecorator implements PasswordManager {
     public String getPassword(String category) {
         return wrapped.getPassword(category);
     }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        wrapped.saveAll(passwords);
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categories) {
+        return wrapped.loadAll(categories);
+    }
 }
\ No newline at end of file
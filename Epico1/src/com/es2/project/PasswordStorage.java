@@ -1,8 +1,75 @@
 package com.es2.project;
 
-public interface PasswordStorage {
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public interface PasswordStorage extends AutoCloseable {
 
     void savePassword(String categoryName, String password);
 
     String loadPassword(String categoryName);
-}
\ No newline at end of file
+
+    /**
+     * Saves several passwords at once. Storages that can apply the whole batch in a
+     * single I/O pass should override this; the default saves them one by one.
+     *
+     * @param passwords Category name to (encrypted) password.
+     */
+    default void saveAll(Map<String, String> passwords) {
+        for (Map.Entry<String, String> entry : passwords.entrySet()) {
+            savePassword(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Loads several passwords at once. Categories without a password are left out.
+     *
+     * @param categoryNames Categories to load.
+     * @return Category name to (encrypted) password, in request order.
+     */
+    default Map<String, String> loadAll(Collection<String> categoryNames) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String name : categoryNames) {
+            String password = loadPassword(name);
+            if (password != null) {
+                result.put(name, password);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists every category stored. Needed by maintenance tasks such as key rotation.
+     *
+     * @return Names of all stored categories.
+     */
+    default Set<String> categoryNames() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " não suporta listar categorias");
+    }
+
+    /**
+     * Removes several categories at once, in a single write where the storage allows.
+     * Categories that are not stored are ignored.
+     *
+     * @param categoryNames Categories to remove.
+     */
+    default void deleteAll(Collection<String> categoryNames) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " não suporta apagar categorias");
+    }
+
+    /**
+     * Forces any buffered writes to disk. Storages that write through have nothing to do.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Flushes pending writes and releases the resources held by the storage.
+     */
+    @Override
+    default void close() {
+        flush();
+    }
+}
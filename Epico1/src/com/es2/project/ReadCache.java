@@ -0,0 +1,154 @@
+package com.es2.project;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache with optional expiry, shared by {@link CachingDecorator} and
+ * {@link CachingPasswordStorage}.
+ * <p>
+ * {@link #invalidate(Object)} must be called before and after every write. A value
+ * loaded while any write was in progress is returned but not cached, so a slow read
+ * can never put back a value older than a concurrent write.
+ */
+final class ReadCache<K, V> {
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final AtomicLong writes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries Maximum number of cached values.
+     * @param ttlMillis  How long a value stays cached, 0 for no limit.
+     */
+    ReadCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("maxEntries deve ser positivo e ttlMillis não negativo");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ReadCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value of {@code key}, or null (counted as a miss).
+     */
+    V getIfPresent(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt != 0 && entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Returns the cached value of {@code key}, loading and caching it on a miss.
+     * Null values are not cached.
+     */
+    V get(K key, Function<K, V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long before = writes.get();
+        value = loader.apply(key);
+        putIfUnchanged(key, value, before);
+        return value;
+    }
+
+    /**
+     * Current write generation, to pass to {@link #putIfUnchanged} after a load.
+     */
+    long generation() {
+        return writes.get();
+    }
+
+    /**
+     * Caches {@code value} unless a write happened since {@code generation} was read.
+     */
+    void putIfUnchanged(K key, V value, long generation) {
+        if (value == null) {
+            return;
+        }
+        long expiresAt = ttlMillis == 0 ? 0 : System.currentTimeMillis() + ttlMillis;
+        synchronized (entries) {
+            if (writes.get() == generation) {
+                entries.put(key, new Entry<>(value, expiresAt));
+            }
+        }
+    }
+
+    void invalidate(K key) {
+        synchronized (entries) {
+            writes.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    void invalidateAll(Iterable<K> keys) {
+        synchronized (entries) {
+            writes.incrementAndGet();
+            for (K key : keys) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            writes.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+}
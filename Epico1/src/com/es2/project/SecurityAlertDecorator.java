@@ -1,8 +1,21 @@
 package com.es2.project;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
+
 public class SecurityAlertDecorator extends PasswordManagerDecorator {
+    static final int MAX_LISTED_CATEGORIES = 10;
+
+    private final EventPipeline events;
+
     public SecurityAlertDecorator(PasswordManager toDecorate) {
+        this(toDecorate, EventPipeline.getInstance());
+    }
+
+    public SecurityAlertDecorator(PasswordManager toDecorate, EventPipeline events) {
         super(toDecorate);
+        this.events = events;
     }
 
     @Override
@@ -17,7 +30,36 @@ public class SecurityAlertDecorator extends PasswordManagerDecorator {
         return super.getPassword(category);
     }
 
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        super.saveAll(passwords);
+        triggerAlert("Passwords modified in " + passwords.size() + " categories: " + list(passwords.keySet()));
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categories) {
+        triggerAlert("Passwords accessed in " + categories.size() + " categories: " + list(categories));
+        return super.loadAll(categories);
+    }
+
+    /**
+     * Lists the first {@value #MAX_LISTED_CATEGORIES} names, so the event of a large
+     * batch stays small.
+     */
+    private static String list(Collection<String> categories) {
+        StringJoiner names = new StringJoiner(", ", "[", "]");
+        int listed = 0;
+        for (String category : categories) {
+            if (listed++ == MAX_LISTED_CATEGORIES) {
+                names.add("…");
+                break;
+            }
+            names.add(category);
+        }
+        return names.toString();
+    }
+
     private void triggerAlert(String message) {
-        System.out.println("[SECURITY ALERT] " + message);
+        events.publish(new SecurityEvent(SecurityEvent.Type.ALERT, message));
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.es2.project;
+
+/**
+ * Side effect of a decorator (a security alert, an MFA challenge) published to the
+ * {@link EventPipeline} instead of being printed on the caller's thread.
+ */
+public final class SecurityEvent {
+    public enum Type { ALERT, MFA }
+
+    private final Type type;
+    private final String message;
+    private final long timestamp;
+
+    public SecurityEvent(Type type, String message) {
+        this.type = type;
+        this.message = message;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Formats the event as the decorators used to print it.
+     */
+    @Override
+    public String toString() {
+        return (type == Type.ALERT ? "[SECURITY ALERT] " : "[MFA] ") + message;
+    }
+}
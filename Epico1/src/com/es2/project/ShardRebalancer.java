@@ -0,0 +1,156 @@
+package com.es2.project;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Offline tool that changes the shard count of a {@link ShardedPasswordStorage} vault
+ * (or shards an unsharded password file for the first time). Values are moved as they
+ * are, so they stay encrypted with the current key.
+ * <p>
+ * Every shard first receives its new categories while keeping the old ones; only then
+ * are the departed categories removed, surplus shards deleted and the new count
+ * recorded. Each file is replaced through a temporary file, forced to disk, and an
+ * atomic rename followed by a sync of the directory
+ * ({@link FilePasswordStorage#replaceAtomically}), so no step reaches the disk before
+ * the ones it depends on. A
+ * crash therefore never loses a category: at worst it leaves copies in two shards,
+ * and running the tool again finishes the job.
+ */
+public final class ShardRebalancer {
+
+    private ShardRebalancer() {
+    }
+
+    /**
+     * Redistributes every category of the vault at {@code basePath} over
+     * {@code shardCount} shards. Must not run while the vault is open.
+     *
+     * @return Number of categories that changed shard.
+     */
+    public static int rebalance(String basePath, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount deve ser positivo");
+        }
+        Integer previousCount = ShardedPasswordStorage.readShardCount(basePath);
+        Map<Integer, Properties> existing = readShards(basePath);
+
+        List<Properties> target = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            target.add(new Properties());
+        }
+        if (previousCount == null && Files.exists(Paths.get(basePath))) {
+            // primeira vez: importa o ficheiro não particionado, que fica intacto
+            Properties legacy = load(Paths.get(basePath));
+            for (String name : legacy.stringPropertyNames()) {
+                target.get(ShardedPasswordStorage.shardOf(name, shardCount)).setProperty(name, legacy.getProperty(name));
+            }
+        }
+
+        int moved = 0;
+        for (Map.Entry<Integer, Properties> shard : existing.entrySet()) {
+            Properties props = shard.getValue();
+            for (String name : props.stringPropertyNames()) {
+                int destination = ShardedPasswordStorage.shardOf(name, shardCount);
+                Properties destinationProps = target.get(destination);
+                // uma cópia já no shard certo (de uma execução interrompida) prevalece
+                if (destination == shard.getKey() || !destinationProps.containsKey(name)) {
+                    destinationProps.setProperty(name, props.getProperty(name));
+                }
+                if (destination != shard.getKey()) {
+                    moved++;
+                }
+            }
+        }
+
+        // 1.º acrescenta as categorias recebidas sem tirar nenhuma; 2.º remove as que saíram
+        for (int i = 0; i < shardCount; i++) {
+            Properties before = existing.get(i);
+            if (before == null || !before.keySet().containsAll(target.get(i).keySet())) {
+                Properties merged = new Properties();
+                if (before != null) {
+                    merged.putAll(before);
+                }
+                merged.putAll(target.get(i));
+                write(Paths.get(ShardedPasswordStorage.shardPath(basePath, i)), merged);
+                existing.put(i, merged);
+            }
+        }
+        for (int i = 0; i < shardCount; i++) {
+            if (!target.get(i).equals(existing.get(i))) {
+                write(Paths.get(ShardedPasswordStorage.shardPath(basePath, i)), target.get(i));
+            }
+        }
+        try {
+            for (int i : existing.keySet()) {
+                if (i >= shardCount) {
+                    Files.delete(Paths.get(ShardedPasswordStorage.shardPath(basePath, i)));
+                }
+            }
+            // também sincroniza a pasta, o que torna definitivas as remoções acima
+            FilePasswordStorage.replaceAtomically(ShardedPasswordStorage.countPath(basePath).toAbsolutePath(),
+                    Integer.toString(shardCount).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao finalizar o rebalanceamento de " + basePath, e);
+        }
+        return moved;
+    }
+
+    private static Map<Integer, Properties> readShards(String basePath) {
+        Path base = Paths.get(basePath).toAbsolutePath();
+        String prefix = base.getFileName() + ".shard-";
+        Map<Integer, Properties> shards = new HashMap<>();
+        if (!Files.isDirectory(base.getParent())) {
+            return shards;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(base.getParent(),
+                p -> p.getFileName().toString().startsWith(prefix))) {
+            for (Path path : stream) {
+                String suffix = path.getFileName().toString().substring(prefix.length());
+                if (suffix.matches("\\d+")) {
+                    shards.put(Integer.parseInt(suffix), load(path));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao listar os shards de " + basePath, e);
+        }
+        return shards;
+    }
+
+    private static Properties load(Path path) {
+        Properties props = new Properties();
+        try (InputStream input = Files.newInputStream(path)) {
+            props.load(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler o shard " + path, e);
+        }
+        return props;
+    }
+
+    private static void write(Path path, Properties props) {
+        try {
+            FilePasswordStorage.replaceAtomically(path.toAbsolutePath(), props);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao escrever o shard " + path, e);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Uso: ShardRebalancer <PasswordFile> <shards>");
+            System.exit(1);
+        }
+        int moved = rebalance(args[0], Integer.parseInt(args[1]));
+        System.out.println("Movidas " + moved + " categorias; " + args[0] + " tem agora " + args[1] + " shards");
+    }
+}
@@ -0,0 +1,235 @@
+package com.es2.project;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Partitions categories across N password files ({@code <path>.shard-<i>}), so saves to
+ * categories in different shards run in parallel. Batches are split per shard and the
+ * shards are written concurrently. {@link FilePasswordStorage} shards are used without
+ * a lock, so concurrent saves to one shard meet in its group commit and share an fsync;
+ * any other shard gets a read-write lock of its own.
+ * <p>
+ * Categories are placed with jump consistent hashing, so changing the shard count with
+ * {@link ShardRebalancer} moves only about {@code 1/N} of them. The shard count is kept
+ * in {@code <path>.shards}; opening with a different count fails until the vault has
+ * been rebalanced.
+ */
+public class ShardedPasswordStorage implements PasswordStorage {
+    private final List<PasswordStorage> shards;
+    // null para shards já thread-safe
+    private final List<ReadWriteLock> locks;
+
+    public ShardedPasswordStorage(List<PasswordStorage> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("É preciso pelo menos um shard");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.locks = new ArrayList<>(shards.size());
+        for (PasswordStorage shard : shards) {
+            locks.add(shard instanceof FilePasswordStorage ? null : new ReentrantReadWriteLock());
+        }
+    }
+
+    /**
+     * Opens the file shards of {@code basePath}. The first time, the vault is created
+     * with {@code shardCount} shards and an existing unsharded file at {@code basePath}
+     * is imported.
+     *
+     * @throws IllegalStateException if the vault was created with another shard count.
+     */
+    public static ShardedPasswordStorage open(String basePath, int shardCount) {
+        Integer current = readShardCount(basePath);
+        if (current == null) {
+            ShardRebalancer.rebalance(basePath, shardCount);
+        } else if (current != shardCount) {
+            throw new IllegalStateException("O cofre tem " + current + " shards e foram pedidos " + shardCount
+                    + "; corra o ShardRebalancer primeiro");
+        }
+        List<PasswordStorage> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new FilePasswordStorage(shardPath(basePath, i)));
+        }
+        return new ShardedPasswordStorage(shards);
+    }
+
+    static String shardPath(String basePath, int shard) {
+        return basePath + ".shard-" + shard;
+    }
+
+    static Path countPath(String basePath) {
+        return Paths.get(basePath + ".shards");
+    }
+
+    static Integer readShardCount(String basePath) {
+        Path path = countPath(basePath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            throw new RuntimeException("Erro ao ler o número de shards de " + path, e);
+        }
+    }
+
+    /**
+     * Returns the shard, between 0 and {@code shardCount - 1}, that holds a category.
+     */
+    static int shardOf(String categoryName, int shardCount) {
+        // FNV-1a de 64 bits: estável entre execuções e JVMs
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < categoryName.length(); i++) {
+            hash ^= categoryName.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // jump consistent hash (Lamping e Veach)
+        long bucket = -1;
+        long next = 0;
+        while (next < shardCount) {
+            bucket = next;
+            hash = hash * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((hash >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    private int shardOf(String categoryName) {
+        return shardOf(categoryName, shards.size());
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    private <T> T read(int shard, Supplier<T> action) {
+        ReadWriteLock lock = locks.get(shard);
+        if (lock == null) {
+            return action.get();
+        }
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(int shard, Runnable action) {
+        ReadWriteLock lock = locks.get(shard);
+        if (lock == null) {
+            action.run();
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void savePassword(String categoryName, String password) {
+        int shard = shardOf(categoryName);
+        write(shard, () -> shards.get(shard).savePassword(categoryName, password));
+    }
+
+    @Override
+    public String loadPassword(String categoryName) {
+        int shard = shardOf(categoryName);
+        return read(shard, () -> shards.get(shard).loadPassword(categoryName));
+    }
+
+    @Override
+    public void saveAll(Map<String, String> passwords) {
+        List<Map<String, String>> groups = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            groups.add(new LinkedHashMap<>());
+        }
+        for (Map.Entry<String, String> entry : passwords.entrySet()) {
+            groups.get(shardOf(entry.getKey())).put(entry.getKey(), entry.getValue());
+        }
+        IntStream.range(0, shards.size()).parallel().filter(i -> !groups.get(i).isEmpty()).forEach(i -> {
+            write(i, () -> shards.get(i).saveAll(groups.get(i)));
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<String> categoryNames) {
+        List<List<String>> groups = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (String name : categoryNames) {
+            groups.get(shardOf(name)).add(name);
+        }
+        IntStream.range(0, shards.size()).parallel().filter(i -> !groups.get(i).isEmpty()).forEach(i -> {
+            write(i, () -> shards.get(i).deleteAll(groups.get(i)));
+        });
+    }
+
+    @Override
+    public Map<String, String> loadAll(Collection<String> categoryNames) {
+        List<List<String>> groups = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (String name : categoryNames) {
+            groups.get(shardOf(name)).add(name);
+        }
+        List<Map<String, String>> loaded = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            loaded.add(Map.of());
+        }
+        IntStream.range(0, shards.size()).parallel().filter(i -> !groups.get(i).isEmpty()).forEach(i -> {
+            loaded.set(i, read(i, () -> shards.get(i).loadAll(groups.get(i))));
+        });
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String name : categoryNames) {
+            String password = loaded.get(shardOf(name)).get(name);
+            if (password != null) {
+                result.put(name, password);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> categoryNames() {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            names.addAll(read(shard, () -> shards.get(shard).categoryNames()));
+        }
+        return names;
+    }
+
+    @Override
+    public void flush() {
+        for (PasswordStorage shard : shards) {
+            shard.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (PasswordStorage shard : shards) {
+            shard.close();
+        }
+    }
+}
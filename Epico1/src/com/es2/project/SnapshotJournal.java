@@ -0,0 +1,293 @@
+package com.es2.project;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk chain of {@link AppState} snapshots used by {@link AppStateBackupService}.
+ * <p>
+ * Snapshots are appended to {@code snapshots.dat} either as a base, holding every
+ * category, or as a delta, holding only the categories whose history changed since the
+ * previous snapshot plus the removed ones. Config fields are small and always written,
+ * each behind a presence flag since they may be missing from the configuration.
+ * <p>
+ * Nothing secret is written. The key is replaced by its id ({@link CryptoManager#keyIdOf}),
+ * and of each category's history only the latest modification keeps its value, the
+ * ciphertext that a restore writes back; every other access keeps its action and time
+ * only, since consultations record the decrypted password.
+ * <p>
+ * Record layout: {@code crc(int) length(int) payload}, where the CRC covers the payload.
+ * {@code snapshots.idx} keeps a fixed-size entry per snapshot ({@code offset(long)
+ * base(byte)}), so restoring snapshot {@code n} reads the index, then only the records
+ * from the closest base up to {@code n}. Records past the last indexed one, left by a
+ * crash between both writes, are truncated when the journal is opened.
+ */
+class SnapshotJournal implements AutoCloseable {
+    private static final String DATA_FILE = "snapshots.dat";
+    private static final String INDEX_FILE = "snapshots.idx";
+    private static final int HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 9;
+    private static final byte BASE = 0;
+    private static final byte DELTA = 1;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Boolean> bases = new ArrayList<>();
+
+    SnapshotJournal(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            this.data = FileChannel.open(directory.resolve(DATA_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.index = FileChannel.open(directory.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao abrir os snapshots em " + directory, e);
+        }
+    }
+
+    private void recover() throws IOException {
+        long entries = index.size() / INDEX_ENTRY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (entries * INDEX_ENTRY_SIZE));
+        readFully(index, buffer, 0);
+        buffer.flip();
+        for (long i = 0; i < entries; i++) {
+            offsets.add(buffer.getLong());
+            bases.add(buffer.get() == BASE);
+        }
+
+        // descarta entradas cujo registo não chegou inteiro ao disco
+        long end = 0;
+        while (!offsets.isEmpty()) {
+            long offset = offsets.get(offsets.size() - 1);
+            end = validRecordEnd(offset);
+            if (end > 0) {
+                break;
+            }
+            offsets.remove(offsets.size() - 1);
+            bases.remove(bases.size() - 1);
+        }
+        index.truncate((long) offsets.size() * INDEX_ENTRY_SIZE);
+        data.truncate(end);
+        index.position(index.size());
+        data.position(data.size());
+    }
+
+    /**
+     * Returns where the record at {@code offset} ends, or 0 if it is torn or corrupt.
+     */
+    private long validRecordEnd(long offset) throws IOException {
+        if (offset + HEADER_SIZE > data.size()) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(data, header, offset);
+        header.flip();
+        int crc = header.getInt();
+        int length = header.getInt();
+        if (length < 0 || offset + HEADER_SIZE + length > data.size()) {
+            return 0;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(data, payload, offset + HEADER_SIZE);
+        return crc(payload.array()) == crc ? offset + HEADER_SIZE + length : 0;
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    /**
+     * Appends a snapshot and forces it to disk.
+     *
+     * @param previous Snapshot this one is a delta of, or null to write a base.
+     */
+    synchronized void append(AppState snapshot, AppState previous) {
+        try {
+            byte[] payload = encode(snapshot, previous);
+            long offset = data.size();
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+            record.putInt(crc(payload)).putInt(payload.length).put(payload).flip();
+            writeFully(data, record, offset);
+            data.force(false);
+
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            entry.putLong(offset).put(previous == null ? BASE : DELTA).flip();
+            writeFully(index, entry, (long) offsets.size() * INDEX_ENTRY_SIZE);
+            index.force(false);
+
+            offsets.add(offset);
+            bases.add(previous == null);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao guardar o snapshot", e);
+        }
+    }
+
+    /**
+     * Rebuilds snapshot {@code n} from the closest base before it and the deltas after it.
+     */
+    synchronized AppState read(int n) {
+        int base = n;
+        while (!bases.get(base)) {
+            base--;
+        }
+        Map<String, List<AppStateManager.AccessInfo>> state = new HashMap<>();
+        String[] config = new String[2]; // url e id da chave
+        int passwordLength = 0;
+        try {
+            for (int i = base; i <= n; i++) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(readRecord(offsets.get(i))));
+                in.readByte();
+                config[0] = readNullable(in);
+                config[1] = readNullable(in);
+                passwordLength = in.readInt();
+                int changed = in.readInt();
+                for (int c = 0; c < changed; c++) {
+                    String category = in.readUTF();
+                    int entries = in.readInt();
+                    List<AppStateManager.AccessInfo> history = new ArrayList<>(entries);
+                    for (int e = 0; e < entries; e++) {
+                        String password = in.readBoolean() ? in.readUTF() : null;
+                        history.add(new AppStateManager.AccessInfo(password, in.readUTF(), in.readLong()));
+                    }
+                    state.put(category, Collections.unmodifiableList(history));
+                }
+                int removed = in.readInt();
+                for (int r = 0; r < removed; r++) {
+                    state.remove(in.readUTF());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler o snapshot " + n, e);
+        }
+        return new AppState(Collections.unmodifiableMap(state), config[0], null, config[1], passwordLength, true);
+    }
+
+    private byte[] readRecord(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(data, header, offset);
+        header.flip();
+        int crc = header.getInt();
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt());
+        readFully(data, payload, offset + HEADER_SIZE);
+        if (crc(payload.array()) != crc) {
+            throw new RuntimeException("Snapshot corrompido na posição " + offset);
+        }
+        return payload.array();
+    }
+
+    private static byte[] encode(AppState snapshot, AppState previous) throws IOException {
+        Map<String, List<AppStateManager.AccessInfo>> state = snapshot.getState();
+        Map<String, List<AppStateManager.AccessInfo>> before =
+                previous == null ? Collections.emptyMap() : previous.getState();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(previous == null ? BASE : DELTA);
+        // url e chave podem faltar na configuração
+        writeNullable(out, snapshot.getDatabaseUrl());
+        writeNullable(out, snapshot.getKeyId());
+        out.writeInt(snapshot.getPasswordLength());
+
+        // snapshots partilham as listas inalteradas, por isso basta comparar referências
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, List<AppStateManager.AccessInfo>> entry : state.entrySet()) {
+            if (entry.getValue() != before.get(entry.getKey())) {
+                changed.add(entry.getKey());
+            }
+        }
+        out.writeInt(changed.size());
+        for (String category : changed) {
+            List<AppStateManager.AccessInfo> history = state.get(category);
+            out.writeUTF(category);
+            out.writeInt(history.size());
+            int kept = lastModification(history);
+            for (int i = 0; i < history.size(); i++) {
+                AppStateManager.AccessInfo info = history.get(i);
+                boolean withPassword = i == kept && info.getPassword() != null;
+                out.writeBoolean(withPassword);
+                if (withPassword) {
+                    out.writeUTF(info.getPassword());
+                }
+                out.writeUTF(info.getAction());
+                out.writeLong(info.getTimestamp());
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String category : before.keySet()) {
+            if (!state.containsKey(category)) {
+                removed.add(category);
+            }
+        }
+        out.writeInt(removed.size());
+        for (String category : removed) {
+            out.writeUTF(category);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int lastModification(List<AppStateManager.AccessInfo> history) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (AppStateManager.MODIFICATION.equalsIgnoreCase(history.get(i).getAction())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Fim inesperado do ficheiro de snapshots");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            data.close();
+            index.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao fechar os snapshots", e);
+        }
+    }
+}
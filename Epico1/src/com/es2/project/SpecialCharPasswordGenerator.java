@@ -1,20 +1,12 @@
 package com.es2.project;
 
-import java.security.SecureRandom;
-
 /**
  * Generates passwords containing special characters.
  */
-public class SpecialCharPasswordGenerator implements PasswordGenerator {
+public class SpecialCharPasswordGenerator extends AlphabetPasswordGenerator {
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!@#$%^&*()-_=+";
-    private static final SecureRandom RANDOM = new SecureRandom();
 
-    @Override
-    public String generate(int length) {
-        StringBuilder password = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            password.append(CHARACTERS.charAt(RANDOM.nextInt(CHARACTERS.length())));
-        }
-        return password.toString();
+    public SpecialCharPasswordGenerator() {
+        super(CHARACTERS);
     }
 }
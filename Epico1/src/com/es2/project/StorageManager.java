@@ -1,81 +1,455 @@
 package com.es2.project;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class StorageManager {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final LatencyTimer SAVE = METRICS.timer("storage-manager.save");
+    private static final LatencyTimer LOAD = METRICS.timer("storage-manager.load");
+    private static final LatencyTimer SAVE_ALL = METRICS.timer("storage-manager.saveAll");
+    private static final LatencyTimer LOAD_ALL = METRICS.timer("storage-manager.loadAll");
 
-    private static StorageManager instance;
+    private static volatile StorageManager instance;
     private PasswordStorage passwordStorage;
-    private CryptoManager cryptoManager;
+    private final KeyRing keyRing;
     private final AppStateManager appStateManager;
+    // operações partilham o read lock; a rotação de chave e a troca de backend tomam o write lock
+    private final ReentrantReadWriteLock writeLock = new ReentrantReadWriteLock();
 
     public StorageManager(PasswordStorage passwordStorage) {
-        this.passwordStorage = passwordStorage;
-        this.cryptoManager = CryptoManager.getInstance();
-        this.appStateManager = AppStateManager.getInstance();
+        this(passwordStorage, KeyRing.getInstance(), AppStateManager.getInstance());
+        // inicialização antecipada, como antes do KeyRing: o CryptoManager global e o seu
+        // pool são criados já, e uma chave inválida falha aqui em vez de no primeiro save
+        CryptoManager.getInstance();
     }
 
-    private CryptoManager getCryptoManager() {
-        cryptoManager =  CryptoManager.getInstance();
-        return cryptoManager;
+    /**
+     * StorageManager wired to the given key ring and history instead of the global
+     * ones, as done by {@link VaultContext}.
+     */
+    StorageManager(PasswordStorage passwordStorage, KeyRing keyRing, AppStateManager appStateManager) {
+        this.passwordStorage = passwordStorage;
+        this.keyRing = keyRing;
+        this.appStateManager = appStateManager;
     }
 
-    public static synchronized StorageManager getInstance() {
-        if (instance == null) {
-            PasswordStorage defaultStorage = new FilePasswordStorage(AppConfig.getInstance().get_path());
-            instance = new StorageManager(defaultStorage);
+    public static StorageManager getInstance() {
+        StorageManager current = instance;
+        if (current == null) {
+            synchronized (StorageManager.class) {
+                current = instance;
+                if (current == null) {
+                    current = new StorageManager(createDefaultStorage());
+                    instance = current;
+                }
+            }
         }
-        return instance;
+        return current;
     }
 
+    /**
+     * Reopens the configured backend. An existing instance is kept and switches backend
+     * in place, so categories and managers already holding it never reach a closed
+     * storage.
+     */
     public static synchronized void reloadInstance() {
-        PasswordStorage defaultStorage = new FilePasswordStorage(AppConfig.getInstance().get_path());
-        instance = new StorageManager(defaultStorage);
+        StorageManager current = instance;
+        if (current == null) {
+            instance = new StorageManager(createDefaultStorage());
+            return;
+        }
+        current.reopenStorage();
     }
 
+    /**
+     * Closes the backend and opens a new one for the configured path. Operations wait
+     * meanwhile, and the old backend has written everything and released the file
+     * before the new one opens it.
+     */
+    private void reopenStorage() {
+        writeLock.writeLock().lock();
+        try {
+            passwordStorage.close();
+            passwordStorage = createDefaultStorage();
+        } finally {
+            writeLock.writeLock().unlock();
+        }
+    }
 
-    public synchronized void setPasswordStorage(PasswordStorage passwordStorage) {
-        this.passwordStorage = passwordStorage;
+    /**
+     * Creates the storage backend selected by {@code storage.mode} in the configuration,
+     * behind a ciphertext cache when {@code storage.cache.entries} is positive.
+     *
+     * @return A PasswordStorage for the configured path.
+     */
+    static PasswordStorage createDefaultStorage() {
+        return createDefaultStorage(AppConfig.getInstance());
+    }
+
+    static PasswordStorage createDefaultStorage(AppConfig config) {
+        PasswordStorage storage = new MeteredPasswordStorage(createBackend(config));
+        if (config.getStorageCacheEntries() > 0) {
+            return new CachingPasswordStorage(storage, config.getStorageCacheEntries(), config.getStorageCacheTtlMillis());
+        }
+        return storage;
+    }
+
+    private static PasswordStorage createBackend(AppConfig config) {
+        switch (config.getStorageMode()) {
+            case AppConfig.STORAGE_FILE:
+                return new FilePasswordStorage(config.get_path());
+            case AppConfig.STORAGE_INDEXED:
+                return IndexedFilePasswordStorage.open(config.get_path(), config.getFlushIntervalMillis());
+            case AppConfig.STORAGE_LOG:
+                // os segmentos ficam numa pasta ao lado do ficheiro configurado
+                return LogStructuredPasswordStorage.open(config.get_path() + ".segments");
+            case AppConfig.STORAGE_MAPPED:
+                String vaultPath = config.get_path() + ".vault";
+                if (!new File(vaultPath).exists() && new File(config.get_path()).exists()) {
+                    PasswordFileConverter.convert(config.get_path(), vaultPath);
+                }
+                return new MappedPasswordStorage(vaultPath);
+            case AppConfig.STORAGE_SHARDED:
+                // <folder.path>.shard-N, importado de folder.path na primeira vez
+                return ShardedPasswordStorage.open(config.get_path(), config.getStorageShards());
+            default:
+                throw new IllegalArgumentException("storage.mode inválido: " + config.getStorageMode());
+        }
+    }
+
+
+    KeyRing getKeyRing() {
+        return keyRing;
+    }
+
+    /**
+     * Flushes and releases the underlying storage.
+     */
+    void close() {
+        writeLock.writeLock().lock();
+        try {
+            passwordStorage.close();
+        } finally {
+            writeLock.writeLock().unlock();
+        }
+    }
+
+    public void setPasswordStorage(PasswordStorage passwordStorage) {
+        writeLock.writeLock().lock();
+        try {
+            this.passwordStorage.flush();
+            this.passwordStorage = passwordStorage;
+        } finally {
+            writeLock.writeLock().unlock();
+        }
     }
 
     public void savePassword(String categoryName, String password) {
-        String encryptedPassword = getCryptoManager().encrypt(password);
-        passwordStorage.savePassword(categoryName, encryptedPassword);
-        appStateManager.recordAccess(categoryName, encryptedPassword, "modification");
+        long start = SAVE.start();
+        String encryptedPassword;
+        writeLock.readLock().lock();
+        try {
+            encryptedPassword = keyRing.encrypt(password);
+            passwordStorage.savePassword(categoryName, encryptedPassword);
+        } finally {
+            writeLock.readLock().unlock();
+            SAVE.stop(start);
+        }
+        appStateManager.recordAccess(categoryName, encryptedPassword, AppStateManager.MODIFICATION);
+    }
+
+    /**
+     * Same as {@link #savePassword(String, String)} for a password kept in a
+     * {@code char[]}, so it never exists as a String. The access history records the
+     * encrypted value. The caller may clear {@code password} once this returns.
+     */
+    public void savePassword(String categoryName, char[] password) {
+        long start = SAVE.start();
+        String encryptedPassword;
+        writeLock.readLock().lock();
+        try {
+            encryptedPassword = keyRing.encrypt(password);
+            passwordStorage.savePassword(categoryName, encryptedPassword);
+        } finally {
+            writeLock.readLock().unlock();
+            SAVE.stop(start);
+        }
+        appStateManager.recordAccess(categoryName, encryptedPassword, AppStateManager.MODIFICATION);
     }
 
     public void saveEncryptedPassword(String categoryName, String encryptedPassword) {
-        passwordStorage.savePassword(categoryName, encryptedPassword);
+        writeLock.readLock().lock();
+        try {
+            passwordStorage.savePassword(categoryName, encryptedPassword);
+        } finally {
+            writeLock.readLock().unlock();
+        }
     }
 
 
     public String loadPassword(String categoryName) {
-        String encryptedPassword = passwordStorage.loadPassword(categoryName);
-        if (encryptedPassword == null) {
-            return null;
+        long start = LOAD.start();
+        String decryptedPassword;
+        writeLock.readLock().lock();
+        try {
+            String encryptedPassword = passwordStorage.loadPassword(categoryName);
+            if (encryptedPassword == null) {
+                return null;
+            }
+            decryptedPassword = keyRing.decrypt(encryptedPassword);
+        } finally {
+            writeLock.readLock().unlock();
+            LOAD.stop(start);
         }
-        String decryptedPassword = getCryptoManager().decrypt(encryptedPassword);
-        appStateManager.recordAccess(categoryName, decryptedPassword, "consultation");
+        appStateManager.recordAccess(categoryName, decryptedPassword, AppStateManager.CONSULTATION);
         return decryptedPassword;
     }
 
-    public void restorePasswordsFromState(Map<String, List<AppStateManager.AccessInfo>> stateData) {
+    /**
+     * Decrypts a password into a caller-supplied buffer instead of a String. Unlike
+     * {@link #loadPassword(String)}, the access history records the encrypted value,
+     * so the plaintext is not retained anywhere.
+     *
+     * @param categoryName Category to load.
+     * @param out          Destination buffer; as many chars as the stored value always suffice.
+     * @return Number of chars written, or -1 if the category has no password.
+     */
+    public int loadPassword(String categoryName, char[] out) {
+        long start = LOAD.start();
+        String encryptedPassword;
+        int length;
+        writeLock.readLock().lock();
+        try {
+            encryptedPassword = passwordStorage.loadPassword(categoryName);
+            if (encryptedPassword == null) {
+                return -1;
+            }
+            length = keyRing.decrypt(encryptedPassword, out);
+        } finally {
+            writeLock.readLock().unlock();
+            LOAD.stop(start);
+        }
+        appStateManager.recordAccess(categoryName, encryptedPassword, AppStateManager.CONSULTATION);
+        return length;
+    }
+
+    /**
+     * Encrypts and saves a batch of passwords with a single storage write.
+     *
+     * @param passwords Category name to plain password.
+     */
+    public void saveAll(Map<String, String> passwords) {
+        List<String> names = new ArrayList<>(passwords.keySet());
+        Map<String, String> encrypted = new LinkedHashMap<>();
+        long start = SAVE_ALL.start();
+        writeLock.readLock().lock();
+        try {
+            List<String> ciphertexts = keyRing.encryptAll(new ArrayList<>(passwords.values()));
+            for (int i = 0; i < names.size(); i++) {
+                encrypted.put(names.get(i), ciphertexts.get(i));
+            }
+            passwordStorage.saveAll(encrypted);
+        } finally {
+            writeLock.readLock().unlock();
+            SAVE_ALL.stop(start);
+        }
+        for (Map.Entry<String, String> entry : encrypted.entrySet()) {
+            appStateManager.recordAccess(entry.getKey(), entry.getValue(), AppStateManager.MODIFICATION);
+        }
+    }
+
+    /**
+     * Loads and decrypts a batch of passwords with a single storage read.
+     *
+     * @param categoryNames Categories to load.
+     * @return Category name to plain password; categories without a password are left out.
+     */
+    public Map<String, String> loadAll(Collection<String> categoryNames) {
+        long start = LOAD_ALL.start();
+        Map<String, String> encrypted;
+        List<String> plaintexts;
+        writeLock.readLock().lock();
+        try {
+            encrypted = passwordStorage.loadAll(categoryNames);
+            plaintexts = keyRing.decryptAll(new ArrayList<>(encrypted.values()));
+        } finally {
+            writeLock.readLock().unlock();
+            LOAD_ALL.stop(start);
+        }
+        List<String> names = new ArrayList<>(encrypted.keySet());
+        Map<String, String> decrypted = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            decrypted.put(names.get(i), plaintexts.get(i));
+            appStateManager.recordAccess(names.get(i), plaintexts.get(i), AppStateManager.CONSULTATION);
+        }
+        return decrypted;
+    }
+
+    /**
+     * Removes several categories with a single storage write.
+     *
+     * @param categoryNames Categories to remove.
+     */
+    public void deleteAll(Collection<String> categoryNames) {
+        writeLock.readLock().lock();
+        try {
+            passwordStorage.deleteAll(categoryNames);
+        } finally {
+            writeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads a batch of passwords as stored, without decrypting them.
+     */
+    Map<String, String> loadEncrypted(Collection<String> categoryNames) {
+        writeLock.readLock().lock();
+        try {
+            return passwordStorage.loadAll(categoryNames);
+        } finally {
+            writeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the names of every category in the underlying storage.
+     */
+    public Set<String> categoryNames() {
+        writeLock.readLock().lock();
+        try {
+            return passwordStorage.categoryNames();
+        } finally {
+            writeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes {@code newKey} the key ring's write key and lists the categories to migrate.
+     * Both happen with regular writes held back, so every value written before the
+     * switch is in the list and every value written after it already uses the new key.
+     *
+     * @return Names of every category stored before the switch.
+     */
+    List<String> beginRotation(String newKey) {
+        writeLock.writeLock().lock();
+        try {
+            keyRing.beginRotation(newKey);
+            return new ArrayList<>(passwordStorage.categoryNames());
+        } finally {
+            writeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Abandons a rotation: new writes go back to the configured key and the values
+     * already re-encrypted with the new one are migrated back, {@code batchSize} at a
+     * time, so the configured key alone reads the whole vault again.
+     *
+     * @return Number of values migrated back.
+     */
+    int abortRotation(int batchSize) {
+        List<String> names;
+        writeLock.writeLock().lock();
+        try {
+            keyRing.abortRotation();
+            // inclui as categorias criadas durante a rotação, já com a chave nova
+            names = new ArrayList<>(passwordStorage.categoryNames());
+        } finally {
+            writeLock.writeLock().unlock();
+        }
+        int reverted = 0;
+        for (int from = 0; from < names.size(); from += batchSize) {
+            reverted += reencrypt(names.subList(from, Math.min(from + batchSize, names.size())));
+        }
+        return reverted;
+    }
+
+    /**
+     * Re-encrypts the given categories with the key ring's current write key. Values
+     * already under that key are left alone. Regular writes are held back for the
+     * duration of the batch so none of them is overwritten with an older value.
+     *
+     * @param categoryNames Categories to migrate.
+     * @return Number of values re-encrypted.
+     */
+    int reencrypt(Collection<String> categoryNames) {
+        writeLock.writeLock().lock();
+        try {
+            String targetKeyId = keyRing.getWriteKeyId();
+            Map<String, String> stored = passwordStorage.loadAll(categoryNames);
+            List<String> names = new ArrayList<>();
+            List<String> ciphertexts = new ArrayList<>();
+            String configuredKeyId = keyRing.getConfiguredKeyId();
+            for (Map.Entry<String, String> entry : stored.entrySet()) {
+                String keyId = KeyRing.keyIdOf(entry.getValue());
+                // valores sem etiqueta pertencem à chave configurada
+                if (!targetKeyId.equals(keyId == null ? configuredKeyId : keyId)) {
+                    names.add(entry.getKey());
+                    ciphertexts.add(entry.getValue());
+                }
+            }
+            if (names.isEmpty()) {
+                return 0;
+            }
+            List<String> reencrypted = keyRing.encryptAll(keyRing.decryptAll(ciphertexts));
+            Map<String, String> batch = new LinkedHashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                batch.put(names.get(i), reencrypted.get(i));
+            }
+            passwordStorage.saveAll(batch);
+            return batch.size();
+        } finally {
+            writeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts back the password each category had in a snapshot: the value of its latest
+     * modification. Only categories whose stored value differs are written, all in one
+     * {@link PasswordStorage#saveAll(Map)} call, and no other write can interleave.
+     *
+     * @return Number of categories written.
+     */
+    public int restorePasswordsFromState(Map<String, List<AppStateManager.AccessInfo>> stateData) {
+        Map<String, String> target = new LinkedHashMap<>();
         for (Map.Entry<String, List<AppStateManager.AccessInfo>> entry : stateData.entrySet()) {
-            String category = entry.getKey();
             List<AppStateManager.AccessInfo> history = entry.getValue();
+            if (history == null) {
+                continue;
+            }
+            for (int i = history.size() - 1; i >= 0; i--) {
+                AppStateManager.AccessInfo access = history.get(i);
+                if (AppStateManager.MODIFICATION.equalsIgnoreCase(access.getAction())) {
+                    // a password guardada no histórico já está criptografada
+                    target.put(entry.getKey(), access.getPassword());
+                    break;
+                }
+            }
+        }
+        if (target.isEmpty()) {
+            return 0;
+        }
 
-            if (history != null && !history.isEmpty()) {
-                for (int i = history.size() - 1; i >= 0; i--) {
-                    AppStateManager.AccessInfo access = history.get(i);
-                    if ("modification".equalsIgnoreCase(access.getAction())) {
-                        // Salve a senha já criptografada diretamente
-                        saveEncryptedPassword(category, access.getPassword());
-                        break;
-                    }
+        writeLock.writeLock().lock();
+        try {
+            Map<String, String> current = passwordStorage.loadAll(target.keySet());
+            Map<String, String> changed = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : target.entrySet()) {
+                if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                    changed.put(entry.getKey(), entry.getValue());
                 }
             }
+            passwordStorage.saveAll(changed);
+            return changed.size();
+        } finally {
+            writeLock.writeLock().unlock();
         }
     }
-    }
\ No newline at end of file
+}
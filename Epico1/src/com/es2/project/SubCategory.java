@@ -2,9 +2,10 @@ package com.es2.project;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class SubCategory extends Category {
-    private List<Category> children = new ArrayList<>();
+    private final List<Category> children = new ArrayList<>();
 
 
     public SubCategory(String name,StorageManager storageManager) {
@@ -12,20 +13,56 @@ public class SubCategory extends Category {
     }
 
     public void addChild(Category child) {
-        children.add(child);
+        synchronized (children) {
+            children.add(child);
+        }
+        child.setParent(this);
+        CategoryTree t = tree;
+        if (t != null) {
+            t.attach(child);
+        }
     }
 
     public void removeChild(Category child) {
-        children.remove(child);
+        boolean removed;
+        synchronized (children) {
+            removed = children.remove(child);
+        }
+        if (removed) {
+            CategoryTree t = tree;
+            if (t != null) {
+                t.detach(child);
+            }
+            child.setParent(null);
+        }
     }
 
-    @Override
-    public void display() {
-        System.out.println("Diretorio" + getName() + " | password" + getPassword());
+    /**
+     * Returns a copy of the direct children, safe to iterate while the tree changes.
+     */
+    public List<Category> getChildren() {
+        synchronized (children) {
+            return new ArrayList<>(children);
+        }
+    }
 
+    @Override
+    protected String describe(String password) {
+        return "Diretorio" + getName() + " | password" + password;
+    }
 
-        for (Category child : children) {
-            child.display();
+    @Override
+    public void display() {
+        // uma leitura e uma desencriptação em lote para a subárvore inteira
+        List<Category> nodes = new ArrayList<>();
+        CategoryTree.collect(this, nodes);
+        List<String> keys = new ArrayList<>(nodes.size());
+        for (Category node : nodes) {
+            keys.add(node.getStorageKey());
+        }
+        Map<String, String> passwords = getStorageManager().loadAll(keys);
+        for (Category node : nodes) {
+            System.out.println(node.describe(passwords.get(node.getStorageKey())));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package com.es2.project;
+
+import java.util.Properties;
+
+/**
+ * Owns the components of one vault: its configuration, crypto with its own cipher
+ * pool, key ring, access history and storage. Unlike the global singletons, nothing
+ * here is static, so vaults with different keys and files run side by side in one
+ * JVM without sharing state or locks.
+ * <p>
+ * Everything is created and warmed up in the constructor: the storage is opened (and
+ * its index loaded), the cipher pool is pre-filled and one encrypt/decrypt round trip
+ * is made, so the first request does not pay for initialization.
+ * <p>
+ * Changing {@code encryption.key} on {@link #getConfig()} (directly or at the end of a
+ * {@link KeyRotationService} run) switches this vault's crypto only, and releases the
+ * cipher pool of the replaced one.
+ */
+public final class VaultContext implements AutoCloseable {
+    private final String name;
+    private final AppConfig config;
+    private final KeyRing keyRing;
+    private final AppStateManager stateManager;
+    private final StorageManager storageManager;
+    private volatile CryptoManager crypto;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a vault from its own properties, with the same keys as
+     * {@code config.properties} ({@code folder.path}, {@code encryption.key},
+     * {@code storage.mode}, ...).
+     *
+     * @throws IllegalArgumentException if the properties are invalid.
+     */
+    public VaultContext(String name, Properties properties) {
+        this.name = name;
+        this.config = AppConfig.fromProperties(properties);
+        this.crypto = CryptoManager.create(config.getEncryptionKey(), config);
+        this.keyRing = new KeyRing(() -> config, () -> crypto);
+        this.stateManager = new AppStateManager(() -> config, this::getStorageManager);
+        this.storageManager = new StorageManager(StorageManager.createDefaultStorage(config), keyRing, stateManager);
+        config.addListener(change -> replaceCrypto(), "encryption.key");
+        warmUp();
+    }
+
+    private void replaceCrypto() {
+        CryptoManager replaced = crypto;
+        crypto = CryptoManager.create(config.getEncryptionKey(), config);
+        // operações em curso terminam com o pool antigo, que não guarda mais ciphers
+        replaced.close();
+    }
+
+    private void warmUp() {
+        int perMode = Math.min(Runtime.getRuntime().availableProcessors(), config.getCipherPoolSize());
+        crypto.warmUp(perMode);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AppConfig getConfig() {
+        return config;
+    }
+
+    public StorageManager getStorageManager() {
+        return storageManager;
+    }
+
+    public AppStateManager getStateManager() {
+        return stateManager;
+    }
+
+    public CryptoManager getCryptoManager() {
+        return crypto;
+    }
+
+    KeyRing getKeyRing() {
+        return keyRing;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Flushes and closes the vault's storage and releases its cipher pools.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            storageManager.close();
+        } finally {
+            keyRing.close();
+            crypto.close();
+        }
+    }
+}
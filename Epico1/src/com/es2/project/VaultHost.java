@@ -0,0 +1,455 @@
+package com.es2.project;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Serves many isolated vaults from one process. A tenant's {@link VaultContext} is
+ * opened on first use, from the properties the tenant resolver returns for it, so each
+ * vault has its own key, file and cipher pool.
+ * <p>
+ * Open vaults are closed again (storage flushed and closed, cipher pools released)
+ * when they have been idle for {@code vault.host.idle.timeout.ms}, or least recently
+ * used first when more than {@code vault.host.max.open} are open. A vault is never
+ * closed while an operation runs on it, and reopening a tenant waits until its previous
+ * instance has finished closing.
+ * <p>
+ * Each tenant is limited by {@code vault.max.concurrent} and
+ * {@code vault.max.ops.per.second} from its own properties; operations over a limit are
+ * rejected at once. {@link TenantStats} are kept per tenant and survive eviction.
+ */
+public final class VaultHost implements AutoCloseable {
+    private static final MetricsRegistry METRICS = MetricsRegistry.getInstance();
+    private static final LatencyTimer OPEN = METRICS.timer("vault-host.open");
+    private static final MetricCounter EVICTIONS = METRICS.counter("vault-host.evictions");
+    private static final MetricCounter REJECTED = METRICS.counter("vault-host.rejected");
+
+    private final Function<String, Properties> tenants;
+    private final int maxOpenVaults;
+    private final long idleTimeoutMillis;
+    // ordem de acesso: o primeiro é o menos usado recentemente
+    private final LinkedHashMap<String, OpenVault> vaults = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, OpenVault> closing = new ConcurrentHashMap<>();
+    private final Map<String, TenantStats> stats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+    private boolean closed = false;
+
+    /**
+     * Host with {@code vault.host.max.open} and {@code vault.host.idle.timeout.ms} from
+     * the global configuration.
+     *
+     * @param tenants Returns the properties of a tenant's vault, or null if it does not exist.
+     */
+    public VaultHost(Function<String, Properties> tenants) {
+        this(tenants, AppConfig.getInstance().getHostMaxOpenVaults(), AppConfig.getInstance().getHostIdleTimeoutMillis());
+    }
+
+    /**
+     * @param tenants           Returns the properties of a tenant's vault, or null if it does not exist.
+     * @param maxOpenVaults     Maximum number of vaults kept open.
+     * @param idleTimeoutMillis How long an unused vault stays open, 0 for no limit.
+     */
+    public VaultHost(Function<String, Properties> tenants, int maxOpenVaults, long idleTimeoutMillis) {
+        if (maxOpenVaults <= 0 || idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("maxOpenVaults deve ser positivo e idleTimeoutMillis não negativo");
+        }
+        this.tenants = tenants;
+        this.maxOpenVaults = maxOpenVaults;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        if (idleTimeoutMillis > 0) {
+            this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "vault-host-evictor");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(idleTimeoutMillis / 2, 1);
+            evictor.scheduleWithFixedDelay(this::backgroundEvict, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.evictor = null;
+        }
+    }
+
+    /**
+     * Usage counters of one tenant, kept across evictions.
+     */
+    public static final class TenantStats {
+        private final long createdAt = System.currentTimeMillis();
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder opens = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        public long getOperations() {
+            return operations.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return Operations refused by the tenant's limits.
+         */
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getOpens() {
+            return opens.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        /**
+         * @return Average time per completed operation, in microseconds.
+         */
+        public double getAverageLatencyMicros() {
+            long count = operations.sum();
+            return count == 0 ? 0 : busyNanos.sum() / 1000.0 / count;
+        }
+
+        /**
+         * @return Completed operations per second since the tenant was first used.
+         */
+        public double getOperationsPerSecond() {
+            long elapsed = Math.max(1, System.currentTimeMillis() - createdAt);
+            return operations.sum() * 1000.0 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ops=%d (%.1f/s, %.1f us), falhas=%d, rejeitadas=%d, aberturas=%d, despejos=%d",
+                    getOperations(), getOperationsPerSecond(), getAverageLatencyMicros(), getFailures(),
+                    getRejected(), getOpens(), getEvictions());
+        }
+    }
+
+    private final class OpenVault {
+        final String tenant;
+        final TenantStats tenantStats;
+        final FutureTask<VaultContext> opening;
+        final CountDownLatch closed = new CountDownLatch(1);
+        // leases e lastAccess são protegidos pelo lock de vaults
+        int leases;
+        long lastAccess;
+        // definidos ao abrir, publicados pelo FutureTask
+        Semaphore permits;
+        int maxOpsPerSecond;
+        private long windowStart;
+        private int windowCount;
+
+        OpenVault(String tenant) {
+            this.tenant = tenant;
+            this.tenantStats = stats.computeIfAbsent(tenant, t -> new TenantStats());
+            this.opening = new FutureTask<>(this::open);
+        }
+
+        private VaultContext open() throws InterruptedException {
+            OpenVault previous = closing.get(tenant);
+            if (previous != null) {
+                // a instância anterior ainda está a gravar o ficheiro
+                previous.closed.await();
+            }
+            Properties properties = tenants.apply(tenant);
+            if (properties == null) {
+                throw new IllegalArgumentException("Cofre desconhecido: " + tenant);
+            }
+            long start = OPEN.start();
+            VaultContext context = new VaultContext(tenant, properties);
+            OPEN.stop(start);
+            AppConfig config = context.getConfig();
+            permits = config.getVaultMaxConcurrent() > 0 ? new Semaphore(config.getVaultMaxConcurrent()) : null;
+            maxOpsPerSecond = config.getVaultMaxOpsPerSecond();
+            tenantStats.opens.increment();
+            // só depois de abrir com sucesso, para um tenant inválido não fechar outros cofres
+            retire(evictOverCapacity(), true);
+            return context;
+        }
+
+        synchronized boolean tryConsumeRate() {
+            if (maxOpsPerSecond == 0) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= 1000) {
+                windowStart = now;
+                windowCount = 0;
+            }
+            if (windowCount >= maxOpsPerSecond) {
+                return false;
+            }
+            windowCount++;
+            return true;
+        }
+    }
+
+    /**
+     * Runs {@code operation} on the tenant's vault, opening it if needed. The vault
+     * stays open at least until the operation returns.
+     *
+     * @throws IllegalArgumentException if the tenant does not exist.
+     * @throws RuntimeException         if the tenant's limits refuse the operation.
+     */
+    public <T> T execute(String tenant, Function<VaultContext, T> operation) {
+        OpenVault entry = acquire(tenant);
+        try {
+            VaultContext context = await(entry);
+            TenantStats tenantStats = entry.tenantStats;
+            if (entry.permits != null && !entry.permits.tryAcquire()) {
+                throw reject(entry, "vault.max.concurrent");
+            }
+            try {
+                if (!entry.tryConsumeRate()) {
+                    throw reject(entry, "vault.max.ops.per.second");
+                }
+                long start = System.nanoTime();
+                try {
+                    T result = operation.apply(context);
+                    tenantStats.busyNanos.add(System.nanoTime() - start);
+                    tenantStats.operations.increment();
+                    return result;
+                } catch (RuntimeException e) {
+                    tenantStats.failures.increment();
+                    throw e;
+                }
+            } finally {
+                if (entry.permits != null) {
+                    entry.permits.release();
+                }
+            }
+        } finally {
+            release(entry);
+        }
+    }
+
+    public void savePassword(String tenant, String categoryName, String password) {
+        execute(tenant, vault -> {
+            vault.getStorageManager().savePassword(categoryName, password);
+            return null;
+        });
+    }
+
+    public String loadPassword(String tenant, String categoryName) {
+        return execute(tenant, vault -> vault.getStorageManager().loadPassword(categoryName));
+    }
+
+    private RuntimeException reject(OpenVault entry, String limit) {
+        entry.tenantStats.rejected.increment();
+        REJECTED.increment();
+        return new RuntimeException("Limite " + limit + " excedido no cofre " + entry.tenant);
+    }
+
+    private OpenVault acquire(String tenant) {
+        synchronized (vaults) {
+            if (closed) {
+                throw new IllegalStateException("VaultHost já foi fechado");
+            }
+            OpenVault entry = vaults.get(tenant);
+            if (entry == null) {
+                entry = new OpenVault(tenant);
+                vaults.put(tenant, entry);
+            }
+            entry.leases++;
+            entry.lastAccess = System.currentTimeMillis();
+            return entry;
+        }
+    }
+
+    private VaultContext await(OpenVault entry) {
+        // só a primeira thread abre o cofre; as restantes esperam pelo resultado
+        entry.opening.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return entry.opening.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            synchronized (vaults) {
+                vaults.remove(entry.tenant, entry);
+            }
+            entry.closed.countDown();
+            if (entry.tenantStats.getOpens() == 0) {
+                // nomes inválidos não acumulam estatísticas
+                stats.remove(entry.tenant, entry.tenantStats);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Erro ao abrir o cofre " + entry.tenant, e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void release(OpenVault entry) {
+        synchronized (vaults) {
+            entry.leases--;
+            entry.lastAccess = System.currentTimeMillis();
+            if (closed && entry.leases == 0) {
+                vaults.notifyAll();
+            }
+        }
+    }
+
+    private boolean evictable(OpenVault entry) {
+        if (entry.leases > 0 || !entry.opening.isDone()) {
+            return false;
+        }
+        try {
+            entry.opening.get();
+            return true;
+        } catch (InterruptedException | ExecutionException e) {
+            // abertura falhada: quem a pediu retira a entrada
+            return false;
+        }
+    }
+
+    private List<OpenVault> evictOverCapacity() {
+        List<OpenVault> evicted = new ArrayList<>();
+        synchronized (vaults) {
+            Iterator<OpenVault> it = vaults.values().iterator();
+            while (vaults.size() > maxOpenVaults && it.hasNext()) {
+                OpenVault entry = it.next();
+                if (evictable(entry)) {
+                    it.remove();
+                    closing.put(entry.tenant, entry);
+                    evicted.add(entry);
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes every open vault that has been unused for longer than the idle timeout.
+     *
+     * @return Number of vaults closed.
+     */
+    public int evictIdle() {
+        long limit = System.currentTimeMillis() - idleTimeoutMillis;
+        List<OpenVault> evicted = new ArrayList<>();
+        synchronized (vaults) {
+            Iterator<OpenVault> it = vaults.values().iterator();
+            while (it.hasNext()) {
+                OpenVault entry = it.next();
+                if (entry.lastAccess <= limit && evictable(entry)) {
+                    it.remove();
+                    closing.put(entry.tenant, entry);
+                    evicted.add(entry);
+                }
+            }
+        }
+        retire(evicted, true);
+        return evicted.size();
+    }
+
+    private void backgroundEvict() {
+        try {
+            evictIdle();
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao fechar cofres inativos: " + e.getMessage());
+        }
+    }
+
+    private void retire(List<OpenVault> entries, boolean eviction) {
+        for (OpenVault entry : entries) {
+            try {
+                if (eviction) {
+                    entry.tenantStats.evictions.increment();
+                    EVICTIONS.increment();
+                }
+                entry.opening.get().close();
+            } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                System.err.println("Erro ao fechar o cofre " + entry.tenant + ": " + e.getMessage());
+            } finally {
+                entry.closed.countDown();
+                closing.remove(entry.tenant, entry);
+            }
+        }
+    }
+
+    public boolean isOpen(String tenant) {
+        synchronized (vaults) {
+            // get() num LinkedHashMap por ordem de acesso mudaria a ordem LRU
+            return vaults.containsKey(tenant);
+        }
+    }
+
+    public int getOpenVaultCount() {
+        synchronized (vaults) {
+            return vaults.size();
+        }
+    }
+
+    /**
+     * @return The tenant's counters, or null if it was never used.
+     */
+    public TenantStats getStats(String tenant) {
+        return stats.get(tenant);
+    }
+
+    public Map<String, TenantStats> getAllStats() {
+        return new LinkedHashMap<>(stats);
+    }
+
+    /**
+     * Stops accepting operations, waits for the running ones and closes every vault.
+     */
+    @Override
+    public void close() {
+        List<OpenVault> all;
+        boolean interrupted = false;
+        synchronized (vaults) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            while (vaults.values().stream().anyMatch(entry -> entry.leases > 0)) {
+                try {
+                    vaults.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+            }
+            all = new ArrayList<>();
+            for (OpenVault entry : vaults.values()) {
+                if (evictable(entry)) {
+                    all.add(entry);
+                }
+            }
+            vaults.clear();
+        }
+        if (evictor != null) {
+            evictor.shutdown();
+        }
+        retire(all, false);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
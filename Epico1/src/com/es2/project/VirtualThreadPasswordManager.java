@@ -0,0 +1,53 @@
+package com.es2.project;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link AsyncPasswordManager} over a blocking {@link PasswordManager} chain. Each call
+ * runs on its own virtual thread, so thousands of concurrent lookups blocked on file
+ * I/O do not tie up a platform thread each.
+ * <p>
+ * The storage path locks with {@code java.util.concurrent} locks rather than
+ * {@code synchronized} around I/O, so a virtual thread waiting on a read does not pin
+ * its carrier.
+ */
+public class VirtualThreadPasswordManager implements AsyncPasswordManager {
+    private static final ExecutorService VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final PasswordManager delegate;
+    private final Executor executor;
+
+    public VirtualThreadPasswordManager(PasswordManager delegate) {
+        this(delegate, VIRTUAL_THREADS);
+    }
+
+    public VirtualThreadPasswordManager(PasswordManager delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> savePassword(String category, String password) {
+        return CompletableFuture.runAsync(() -> delegate.savePassword(category, password), executor);
+    }
+
+    @Override
+    public CompletableFuture<String> getPassword(String category) {
+        return CompletableFuture.supplyAsync(() -> delegate.getPassword(category), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAll(Map<String, String> passwords) {
+        return CompletableFuture.runAsync(() -> delegate.saveAll(passwords), executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> loadAll(Collection<String> categories) {
+        return CompletableFuture.supplyAsync(() -> delegate.loadAll(categories), executor);
+    }
+}
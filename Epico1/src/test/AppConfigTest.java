@@ -6,11 +6,17 @@ import java.io.*;
 import java.util.Properties;
 import javax.crypto.Cipher;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -261,6 +267,1194 @@ public class AppConfigTest {
         assertEquals("shouldPersist", newManager.getPassword("persistence"));
     }
 
+    @Test
+    void test20_IndexedStorage_PersistsOnClose() {
+        IndexedFilePasswordStorage storage = IndexedFilePasswordStorage.open(passwordFilePath, 60_000);
+        StorageManager storageManager = new StorageManager(storage);
+        storageManager.savePassword("indexed", "writeBehind");
+        assertEquals("writeBehind", storageManager.loadPassword("indexed"));
+        storage.close();
+
+        PasswordStorage reopened = new FilePasswordStorage(passwordFilePath);
+        StorageManager reopenedManager = new StorageManager(reopened);
+        assertEquals("writeBehind", reopenedManager.loadPassword("indexed"));
+    }
+
+    @Test
+    void test21_LogStorage_RecoversAfterCompaction() {
+        String logDir = passwordFilePath + ".segments";
+        LogStructuredPasswordStorage storage = LogStructuredPasswordStorage.open(logDir, 64, 0);
+        for (int i = 0; i < 20; i++) {
+            storage.savePassword("category" + (i % 4), "value" + i);
+        }
+        storage.compact();
+        storage.savePassword("category0", "latest");
+        storage.close();
+
+        LogStructuredPasswordStorage reopened = LogStructuredPasswordStorage.open(logDir, 64, 0);
+        assertEquals("latest", reopened.loadPassword("category0"));
+        assertEquals("value19", reopened.loadPassword("category3"));
+        reopened.close();
+    }
+
+    @Test
+    void test22_BatchSaveAndLoad_ThroughDecorators() {
+        PasswordStorage storage = new FilePasswordStorage(passwordFilePath);
+        PasswordManager manager = new SecurityAlertDecorator(
+                new MFADecorator(
+                        new BasicPasswordManager(new StorageManager(storage))
+                )
+        );
+
+        Map<String, String> batch = new LinkedHashMap<>();
+        batch.put("batch1", "first");
+        batch.put("batch2", "second");
+        manager.saveAll(batch);
+
+        Map<String, String> loaded = manager.loadAll(List.of("batch1", "batch2", "missing"));
+        assertEquals(batch, loaded);
+    }
+
+    @Test
+    void test23_ConcurrentCipherPool_WaitsThenTimesOut() throws Exception {
+        ConcurrentCipherPool pool = new ConcurrentCipherPool("uma-chave-muito-segura", 1, 50);
+        Cipher first = pool.borrowCipher(Cipher.ENCRYPT_MODE);
+        assertThrows(RuntimeException.class, () -> pool.borrowCipher(Cipher.ENCRYPT_MODE));
+        assertEquals(1, pool.getTimeoutCount());
+
+        pool.releaseCipher(first);
+        assertSame(first, pool.borrowCipher(Cipher.ENCRYPT_MODE));
+    }
+
+    @Test
+    void test24_KeyRotation_KeepsPasswordsReadable() throws Exception {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        storageManager.savePassword("rotate1", "beforeRotation");
+        storageManager.savePassword("rotate2", "alsoBefore");
+
+        KeyRotationService rotation = new KeyRotationService(storageManager, 1, 0);
+        rotation.start("chave-depois-da-rotacao");
+        assertTrue(rotation.awaitCompletion(5000));
+
+        assertEquals(KeyRotationService.State.COMPLETED, rotation.getState());
+        assertEquals(2, rotation.getMigrated());
+        assertEquals("chave-depois-da-rotacao", AppConfig.getInstance().getEncryptionKey());
+        assertEquals("beforeRotation", storageManager.loadPassword("rotate1"));
+        assertEquals("alsoBefore", storageManager.loadPassword("rotate2"));
+    }
+
+    @Test
+    void test25_CharArrayPath_MatchesStringPath() {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        char[] secret = "sem-strings-çã".toCharArray();
+        storageManager.savePassword("chars", secret);
+        java.util.Arrays.fill(secret, '\0');
+
+        char[] out = new char[64];
+        int length = storageManager.loadPassword("chars", out);
+        assertEquals("sem-strings-çã", new String(out, 0, length));
+        assertEquals("sem-strings-çã", storageManager.loadPassword("chars"));
+        assertEquals(-1, storageManager.loadPassword("missing", out));
+    }
+
+    @Test
+    void test26_AccessHistory_IsBoundedAndKeepsLastModification() {
+        AppStateManager manager = AppStateManager.getInstance();
+        int max = AppConfig.getInstance().getHistoryMaxEntries();
+        manager.recordAccess("bounded", "cifra", "modification");
+        for (int i = 0; i < max * 2; i++) {
+            manager.recordAccess("bounded", "plain" + i, "consultation");
+        }
+
+        List<AppStateManager.AccessInfo> history = manager.getAccessHistory("bounded");
+        assertEquals(max + 1, history.size());
+        assertEquals("cifra", history.get(0).getPassword());
+        assertEquals("plain" + (max * 2 - 1), manager.getLastAccessedPassword("bounded"));
+    }
+
+    @Test
+    void test27_Snapshots_ShareUnchangedCategories() {
+        AppStateManager manager = AppStateManager.getInstance();
+        manager.recordAccess("partilhada", "a", "modification");
+        manager.recordAccess("alterada", "b", "modification");
+        AppState first = manager.saveState();
+
+        manager.recordAccess("alterada", "c", "modification");
+        AppState second = manager.saveState();
+
+        assertSame(first.getState().get("partilhada"), second.getState().get("partilhada"));
+        assertNotSame(first.getState().get("alterada"), second.getState().get("alterada"));
+        assertEquals("b", first.getState().get("alterada").get(first.getState().get("alterada").size() - 1).getPassword());
+        assertThrows(UnsupportedOperationException.class, () -> second.getState().clear());
+    }
+
+    @Test
+    void test28_PersistedSnapshots_RestoreAfterReopen() throws Exception {
+        String snapshotDir = passwordFilePath + ".snapshots";
+        AppStateManager manager = AppStateManager.getInstance();
+        AppConfig config = AppConfig.getInstance();
+        AppStateBackupService backup = new AppStateBackupService(manager, snapshotDir, 2);
+        for (int i = 0; i < 5; i++) {
+            manager.recordAccess("persistida", "versao" + i, "modification");
+            config.setPasswordLength(12 + i);
+            backup.takeSnapshot();
+        }
+        backup.close();
+
+        AppStateBackupService reopened = new AppStateBackupService(manager, snapshotDir, 2);
+        assertEquals(5, reopened.totalSnapshots());
+        reopened.restoreSnapshot(3);
+        assertEquals("versao3", manager.getLastAccessedPassword("persistida"));
+        assertEquals(15, config.getPasswordLength());
+        reopened.close();
+    }
+
+    @Test
+    void test29_Restore_WritesOnlyChangedCategories() {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        Map<String, String> passwords = new LinkedHashMap<>();
+        passwords.put("igual", "um");
+        passwords.put("mudada", "dois");
+        storageManager.saveAll(passwords);
+        AppState state = AppStateManager.getInstance().saveState();
+
+        storageManager.savePassword("mudada", "tres");
+        assertEquals(1, storageManager.restorePasswordsFromState(state.getState()));
+        assertEquals("dois", storageManager.loadPassword("mudada"));
+        assertEquals("um", storageManager.loadPassword("igual"));
+        assertEquals(0, storageManager.restorePasswordsFromState(state.getState()));
+    }
+
+    @Test
+    void test30_AsyncManager_ConcurrentLookupsThroughDecorators() {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        AsyncPasswordManager manager = new VirtualThreadPasswordManager(new BasicPasswordManager(storageManager))
+                .decorate(MFADecorator::new);
+        manager.savePassword("async", "naoBloqueia").join();
+
+        List<java.util.concurrent.CompletableFuture<String>> lookups = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            lookups.add(manager.getPassword("async"));
+        }
+        for (java.util.concurrent.CompletableFuture<String> lookup : lookups) {
+            assertEquals("naoBloqueia", lookup.join());
+        }
+
+        AsyncPasswordManager failing = manager.decorate(wrapped -> new PasswordManagerDecorator(wrapped) {
+            @Override
+            public String getPassword(String category) {
+                throw new SecurityException("negado");
+            }
+        });
+        PasswordManager blocking = new BlockingPasswordManager(failing);
+        assertThrows(SecurityException.class, () -> blocking.getPassword("async"));
+    }
+
+    @Test
+    void test31_ReadCache_HitsEvictsAndInvalidatesOnWrite() {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        CachingDecorator manager = new CachingDecorator(new BasicPasswordManager(storageManager), 2, 0);
+        manager.savePassword("quente", "v1");
+        assertEquals("v1", manager.getPassword("quente"));
+        assertEquals("v1", manager.getPassword("quente"));
+        assertEquals(1, manager.getHitCount());
+        assertEquals(1, manager.getMissCount());
+
+        manager.savePassword("quente", "v2");
+        assertEquals("v2", manager.getPassword("quente"));
+        manager.savePassword("a", "1");
+        manager.savePassword("b", "2");
+        manager.loadAll(List.of("a", "b"));
+        assertEquals(2, manager.size());
+        assertEquals(1, manager.getEvictionCount());
+
+        CachingPasswordStorage ciphertexts = new CachingPasswordStorage(new FilePasswordStorage(passwordFilePath), 10, 60_000);
+        StorageManager cached = new StorageManager(ciphertexts);
+        assertEquals("v2", cached.loadPassword("quente"));
+        assertEquals("v2", cached.loadPassword("quente"));
+        assertEquals(1, ciphertexts.getHitCount());
+        assertNotEquals("v2", ciphertexts.loadPassword("quente"));
+    }
+
+    @Test
+    void test32_EventPipeline_DeliversInBackgroundAndCountsDrops() throws Exception {
+        InMemoryEventSink sink = new InMemoryEventSink(100);
+        try (EventPipeline events = EventPipeline.start(List.of(sink), 16, 8, EventPipeline.DropPolicy.DROP_NEWEST)) {
+            StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+            PasswordManager manager = new SecurityAlertDecorator(
+                    new MFADecorator(new BasicPasswordManager(storageManager), events), events);
+            manager.savePassword("eventos", "x");
+            manager.getPassword("eventos");
+
+            assertTrue(events.awaitDrained(5000));
+            assertEquals(3, sink.events().size());
+            assertEquals(SecurityEvent.Type.MFA, sink.events().get(0).getType());
+        }
+
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        EventSink stuck = batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try (EventPipeline events = EventPipeline.start(List.of(stuck), 4, 1, EventPipeline.DropPolicy.DROP_NEWEST)) {
+            for (int i = 0; i < 20; i++) {
+                events.publish(new SecurityEvent(SecurityEvent.Type.ALERT, "evento " + i));
+            }
+            assertTrue(events.getDroppedCount() > 0);
+            assertEquals(20, events.getPublishedCount() + events.getDroppedCount());
+            release.countDown();
+            assertTrue(events.awaitDrained(5000));
+        }
+    }
+
+    @Test
+    void test33_Metrics_RecordPerLayerOnlyWhenEnabled() throws Exception {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        StorageManager storageManager = new StorageManager(new MeteredPasswordStorage(new FilePasswordStorage(passwordFilePath)));
+        PasswordManager manager = new MetricsDecorator("teste", new BasicPasswordManager(storageManager));
+        metrics.reset();
+
+        manager.savePassword("medida", "valor");
+        assertEquals(0, metrics.timer("teste.save").getCount());
+
+        metrics.setEnabled(true);
+        metrics.enableJmx();
+        try {
+            manager.savePassword("medida", "valor");
+            manager.getPassword("medida");
+            assertEquals(1, metrics.timer("teste.save").getCount());
+            assertEquals(1, metrics.timer("crypto.decrypt").getCount());
+            assertEquals(24, metrics.counter("storage.bytes.written").getValue());
+            assertEquals(24, metrics.counter("storage.bytes.read").getValue());
+            assertTrue(metrics.timer("storage-manager.load").getP99Micros() > 0);
+            assertTrue(java.lang.management.ManagementFactory.getPlatformMBeanServer().isRegistered(
+                    new javax.management.ObjectName("com.es2.project:type=Metrics,kind=Timer,name=\"teste.save\"")));
+        } finally {
+            metrics.setEnabled(false);
+        }
+    }
+
+    @Test
+    void test34_ShardedStorage_RebalanceKeepsEveryCategory() {
+        Map<String, String> passwords = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            passwords.put("categoria" + i, "valor" + i);
+        }
+        try (ShardedPasswordStorage storage = ShardedPasswordStorage.open(passwordFilePath, 3)) {
+            storage.saveAll(passwords);
+            storage.savePassword("extra", "solta");
+        }
+        assertThrows(IllegalStateException.class, () -> ShardedPasswordStorage.open(passwordFilePath, 5));
+
+        int moved = ShardRebalancer.rebalance(passwordFilePath, 5);
+        assertTrue(moved > 0 && moved < 51);
+        try (ShardedPasswordStorage storage = ShardedPasswordStorage.open(passwordFilePath, 5)) {
+            assertEquals(passwords, storage.loadAll(passwords.keySet()));
+            assertEquals("solta", storage.loadPassword("extra"));
+            assertEquals(51, storage.categoryNames().size());
+        }
+    }
+
+    @Test
+    void test35_FileStorage_GroupCommitsConcurrentSavesAtomically() throws Exception {
+        // restos de uma escrita interrompida não afetam o cofre
+        try (FileWriter stale = new FileWriter(passwordFilePath + ".tmp")) {
+            stale.write("lixo=parcial");
+        }
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.reset();
+        metrics.setEnabled(true);
+        try {
+            List<Callable<Void>> savers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                savers.add(() -> {
+                    PasswordStorage storage = new FilePasswordStorage(passwordFilePath);
+                    for (int i = 0; i < 25; i++) {
+                        storage.savePassword("t" + thread + "_" + i, "v" + i);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : Executors.newFixedThreadPool(8).invokeAll(savers)) {
+                future.get();
+            }
+            assertEquals(200, metrics.counter("file-storage.saves").getValue());
+            assertTrue(metrics.counter("file-storage.commits").getValue() <= 200);
+        } finally {
+            metrics.setEnabled(false);
+        }
+
+        PasswordStorage storage = new FilePasswordStorage(passwordFilePath);
+        assertEquals(200, storage.categoryNames().size());
+        assertEquals("v24", storage.loadPassword("t7_24"));
+        assertNull(storage.loadPassword("lixo"));
+        assertFalse(new File(passwordFilePath + ".tmp").exists());
+    }
+
+    @Test
+    void test36_GenerateBatch_ParallelAndUniform() {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!@#$%^&*()-_=+";
+        List<String> passwords = PasswordGeneratorFactory.createGenerator("SPECIAL").generateBatch(5000, 16);
+        assertEquals(5000, passwords.size());
+        assertEquals(5000, new java.util.HashSet<>(passwords).size());
+
+        int[] counts = new int[128];
+        for (String password : passwords) {
+            assertEquals(16, password.length());
+            for (char c : password.toCharArray()) {
+                assertTrue(alphabet.indexOf(c) >= 0);
+                counts[c]++;
+            }
+        }
+        // 80000 caracteres: ~1053 por símbolo se a distribuição for uniforme
+        for (char c : alphabet.toCharArray()) {
+            assertTrue(counts[c] > 850 && counts[c] < 1250, "Símbolo enviesado: " + c + "=" + counts[c]);
+        }
+        assertTrue(PasswordGeneratorFactory.createGenerator("ALPHANUMERIC").generateBatch(0, 12).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> PasswordGeneratorFactory.createGenerator("ALPHANUMERIC").generateBatch(-1, 12));
+    }
+
+    @Test
+    void test37_CategoryTree_PathLookupAndBatchedSubtree() {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        CategoryTree tree = new CategoryTree(storageManager);
+        tree.addSubCategory(null, "Estudantes");
+        Map<String, String> passwords = new LinkedHashMap<>();
+        for (int t = 0; t < 10; t++) {
+            tree.addSubCategory("Estudantes", "turma" + t);
+            for (int a = 0; a < 500; a++) {
+                tree.addLeaf("Estudantes/turma" + t, "aluno" + t + "_" + a);
+                passwords.put("aluno" + t + "_" + a, "pw" + a);
+            }
+        }
+        storageManager.saveAll(passwords);
+        assertEquals(5011, tree.size());
+        assertEquals("aluno3_7", tree.find("Estudantes/turma3/aluno3_7").getName());
+        assertEquals("Estudantes/turma3/aluno3_7", tree.find("Estudantes/turma3/aluno3_7").getPath());
+        assertThrows(IllegalArgumentException.class, () -> tree.addLeaf("Estudantes/turma3", "aluno3_7"));
+
+        AtomicInteger visited = new AtomicInteger();
+        tree.visit(null, category -> visited.incrementAndGet());
+        assertEquals(5011, visited.get());
+
+        Map<String, String> resolved = tree.resolvePasswords("Estudantes");
+        assertEquals(5000, resolved.size());
+        assertEquals("pw7", resolved.get("Estudantes/turma3/aluno3_7"));
+        AtomicInteger withPassword = new AtomicInteger();
+        tree.visitPasswords("Estudantes/turma9", (category, password) -> {
+            if (password != null) {
+                withPassword.incrementAndGet();
+            }
+        });
+        assertEquals(500, withPassword.get());
+
+        // filhos acrescentados diretamente ficam indexados
+        ((SubCategory) tree.find("Estudantes/turma0")).addChild(new LeafCategory("novo", storageManager));
+        assertNotNull(tree.find("Estudantes/turma0/novo"));
+        assertTrue(tree.remove("Estudantes/turma0"));
+        assertNull(tree.find("Estudantes/turma0/novo"));
+        assertEquals(4510, tree.size());
+    }
+
+    @Test
+    void test38_CategoryHierarchy_PersistsIdsAndBatchesSubtreeOperations() throws Exception {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        String treeFile = passwordFilePath + ".tree";
+        CategoryHierarchy hierarchy = new CategoryHierarchy(treeFile, storageManager);
+        hierarchy.addSubCategory(null, "Estudantes");
+        hierarchy.addSubCategory("Estudantes", "turmaA");
+        hierarchy.addLeaf("Estudantes/turmaA", "joao").setPassword("do-estudante");
+        hierarchy.addSubCategory(null, "Docentes");
+        hierarchy.addSubCategory("Docentes", "turmaA");
+        hierarchy.addLeaf("Docentes/turmaA", "joao").setPassword("do-docente");
+        long id = hierarchy.idOf("Docentes/turmaA/joao");
+
+        // o mesmo nome em ramos diferentes não colide
+        assertEquals("do-estudante", hierarchy.getTree().find("Estudantes/turmaA/joao").getPassword());
+        assertThrows(IllegalArgumentException.class, () -> hierarchy.move("Docentes/turmaA", "Estudantes"));
+        hierarchy.move("Docentes/turmaA", null);
+
+        CategoryHierarchy reopened = new CategoryHierarchy(treeFile, storageManager);
+        assertEquals(id, reopened.idOf("turmaA/joao"));
+        assertEquals("do-docente", reopened.getTree().find("turmaA/joao").getPassword());
+        assertNull(reopened.getTree().find("Docentes/turmaA"));
+
+        String exportFile = passwordFilePath + ".export";
+        assertEquals(1, reopened.export("Estudantes", exportFile));
+        Properties exported = new Properties();
+        try (InputStream input = new FileInputStream(exportFile)) {
+            exported.load(input);
+        }
+        assertTrue(exported.containsKey("Estudantes/turmaA/joao"));
+        reopened.rekey("Estudantes");
+        assertEquals(0, reopened.rekey("Estudantes"));
+        assertEquals("do-estudante", reopened.getTree().find("Estudantes/turmaA/joao").getPassword());
+
+        String key = reopened.getTree().find("Estudantes/turmaA/joao").getStorageKey();
+        assertEquals(3, reopened.delete("Estudantes"));
+        assertTrue(storageManager.loadAll(List.of(key)).isEmpty());
+        assertEquals(3, new CategoryHierarchy(treeFile, storageManager).getTree().size());
+    }
+
+    @Test
+    void test39_AppConfig_ListenersAndHotReload() throws Exception {
+        AppConfig config = AppConfig.getInstance();
+        List<ConfigChange> changes = new ArrayList<>();
+        config.addListener(changes::add, "password.length");
+        config.setDatabaseUrl("jdbc:mysql://outro:3306/db");
+        config.setPasswordLength(15);
+        assertEquals(1, changes.size());
+        assertEquals("11", changes.get(0).getOldValue("password.length"));
+        assertEquals("15", changes.get(0).getNewValue("password.length"));
+
+        config.addListener(new ConfigListener() {
+            @Override
+            public void validate(ConfigChange change) {
+                throw new IllegalArgumentException("vetado");
+            }
+
+            @Override
+            public void configChanged(ConfigChange change) {
+            }
+        }, "password.length");
+        assertThrows(IllegalArgumentException.class, () -> config.setPasswordLength(20));
+        assertEquals(15, config.getPasswordLength());
+
+        // ficheiro observado, ao lado do config.properties no classpath
+        File original = new File(getClass().getClassLoader().getResource("config.properties").toURI());
+        File watched = new File(original.getParentFile(), "watched_" + System.nanoTime() + ".properties");
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(original)) {
+            props.load(input);
+        }
+        try (OutputStream output = new FileOutputStream(watched)) {
+            props.store(output, null);
+        }
+        System.setProperty("config.file", watched.getName());
+        resetSingleton(AppConfig.class, "instance");
+        AppConfig watchedConfig = AppConfig.getInstance();
+        try {
+            java.util.concurrent.CountDownLatch reloaded = new java.util.concurrent.CountDownLatch(1);
+            watchedConfig.addListener(change -> reloaded.countDown(), "password.length");
+            watchedConfig.startWatching();
+
+            props.setProperty("password.length", "5");
+            try (OutputStream output = new FileOutputStream(watched)) {
+                props.store(output, null);
+            }
+            assertThrows(IllegalArgumentException.class, watchedConfig::reload);
+            assertEquals(11, watchedConfig.getPasswordLength());
+
+            props.setProperty("password.length", "14");
+            try (OutputStream output = new FileOutputStream(watched)) {
+                props.store(output, null);
+            }
+            assertTrue(reloaded.await(10, java.util.concurrent.TimeUnit.SECONDS));
+            assertEquals(14, watchedConfig.getPasswordLength());
+        } finally {
+            watchedConfig.stopWatching();
+            System.clearProperty("config.file");
+            watched.delete();
+        }
+    }
+
+    @Test
+    void test40_VaultContext_IsolatesKeysAndRotation() throws Exception {
+        Properties base = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            base.load(input);
+        }
+        Properties propsA = new Properties();
+        propsA.putAll(base);
+        propsA.setProperty("folder.path", passwordFilePath + ".a");
+        propsA.setProperty("encryption.key", "chave-do-cofre-a");
+        Properties propsB = new Properties();
+        propsB.putAll(base);
+        propsB.setProperty("folder.path", passwordFilePath + ".b");
+        propsB.setProperty("encryption.key", "chave-do-cofre-b");
+        String globalKey = AppConfig.getInstance().getEncryptionKey();
+
+        try (VaultContext a = new VaultContext("a", propsA); VaultContext b = new VaultContext("b", propsB)) {
+            a.getStorageManager().savePassword("email", "segredo-a");
+            b.getStorageManager().savePassword("email", "segredo-b");
+            assertEquals("segredo-a", a.getStorageManager().loadPassword("email"));
+            assertEquals("segredo-b", b.getStorageManager().loadPassword("email"));
+            assertNotEquals(a.getCryptoManager().getKeyId(), b.getCryptoManager().getKeyId());
+            assertNull(a.getStateManager().getLastAccessedPassword("nada"));
+            assertNotNull(b.getStateManager().getLastAccessedPassword("email"));
+
+            KeyRotationService rotation = new KeyRotationService(a.getStorageManager(), 10, 0);
+            rotation.start("nova-chave-do-cofre-a");
+            assertTrue(rotation.awaitCompletion(5000));
+            assertEquals(KeyRotationService.State.COMPLETED, rotation.getState());
+            assertEquals("nova-chave-do-cofre-a", a.getConfig().getEncryptionKey());
+            assertEquals("segredo-a", a.getStorageManager().loadPassword("email"));
+            assertEquals("segredo-b", b.getStorageManager().loadPassword("email"));
+            assertEquals(globalKey, AppConfig.getInstance().getEncryptionKey());
+        }
+    }
+
+    @Test
+    void test41_VaultHost_EvictsLruAndAppliesTenantLimits() throws Exception {
+        Properties base = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            base.load(input);
+        }
+        Map<String, Properties> tenants = new LinkedHashMap<>();
+        for (String tenant : new String[]{"t1", "t2", "t3"}) {
+            Properties props = new Properties();
+            props.putAll(base);
+            props.setProperty("folder.path", passwordFilePath + "." + tenant);
+            props.setProperty("encryption.key", "chave-" + tenant);
+            tenants.put(tenant, props);
+        }
+        tenants.get("t3").setProperty("vault.max.ops.per.second", "2");
+
+        try (VaultHost host = new VaultHost(tenants::get, 2, 0)) {
+            host.savePassword("t1", "email", "segredo-1");
+            host.savePassword("t2", "email", "segredo-2");
+            assertEquals("segredo-1", host.loadPassword("t1", "email"));
+            assertEquals(2, host.getOpenVaultCount());
+
+            // t2 é o menos usado recentemente e é fechado para abrir t3
+            host.savePassword("t3", "email", "segredo-3");
+            assertEquals(2, host.getOpenVaultCount());
+            assertFalse(host.isOpen("t2"));
+            assertTrue(host.isOpen("t1"));
+            assertEquals(1, host.getStats("t2").getEvictions());
+
+            assertEquals("segredo-2", host.loadPassword("t2", "email"));
+            assertEquals(2, host.getStats("t2").getOpens());
+            assertEquals(2, host.getStats("t2").getOperations());
+
+            // t3 aceita 2 operações por segundo e já fez uma
+            host.loadPassword("t3", "email");
+            assertThrows(RuntimeException.class, () -> host.loadPassword("t3", "email"));
+            assertEquals(1, host.getStats("t3").getRejected());
+            assertEquals(0, host.getStats("t1").getRejected());
+
+            assertThrows(IllegalArgumentException.class, () -> host.loadPassword("desconhecido", "email"));
+            assertEquals(2, host.getOpenVaultCount());
+
+            // com timeout 0 todos os cofres livres estão inativos, mas um cofre ocupado nunca é fechado
+            host.execute("t1", vault -> {
+                assertEquals(1, host.evictIdle());
+                assertTrue(host.isOpen("t1"));
+                return null;
+            });
+            assertEquals(1, host.getOpenVaultCount());
+        }
+    }
+
+    /**
+     * Writes a copy of config.properties with the given overrides next to it in the
+     * classpath and makes it the global configuration.
+     */
+    private File useConfigFile(Map<String, String> overrides) throws Exception {
+        File original = new File(getClass().getClassLoader().getResource("config.properties").toURI());
+        File file = new File(original.getParentFile(), "test_" + System.nanoTime() + ".properties");
+        Properties props = new Properties();
+        try (InputStream input = new FileInputStream(original)) {
+            props.load(input);
+        }
+        props.putAll(overrides);
+        try (OutputStream output = new FileOutputStream(file)) {
+            props.store(output, null);
+        }
+        System.setProperty("config.file", file.getName());
+        resetSingleton(AppConfig.class, "instance");
+        return file;
+    }
+
+    @Test
+    void test42_KeyChange_KeepsStorageManagerHoldersWorking() throws Exception {
+        File file = useConfigFile(Map.of("storage.mode", "INDEXED", "folder.path", passwordFilePath));
+        try {
+            StorageManager storageManager = StorageManager.getInstance();
+            SubCategory category = new SubCategory("email", storageManager);
+            category.setPassword("antes");
+
+            AppConfig.getInstance().setEncryptionKey("outra-chave-segura-top");
+            // o backend é trocado dentro da mesma instância: quem a guardou continua a funcionar
+            assertSame(storageManager, StorageManager.getInstance());
+            category.setPassword("depois");
+            assertEquals("depois", category.getPassword());
+        } finally {
+            StorageManager.getInstance().setPasswordStorage(new FilePasswordStorage(passwordFilePath + ".fim"));
+            System.clearProperty("config.file");
+            file.delete();
+        }
+    }
+
+    @Test
+    void test43_BulkCrypto_LegacyPoolNotExhaustedByWideForkJoinPool() throws Exception {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            props.load(input);
+        }
+        props.setProperty("folder.path", passwordFilePath);
+        props.setProperty("cipher.pool.type", AppConfig.CIPHER_POOL_LEGACY);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            values.add("valor-" + i);
+        }
+        java.util.concurrent.ForkJoinPool wide = new java.util.concurrent.ForkJoinPool(32);
+        try (VaultContext vault = new VaultContext("legacy", props)) {
+            CryptoManager crypto = vault.getCryptoManager();
+            // o pool LEGACY só tem 10 ciphers e falha em vez de esperar
+            List<String> encrypted = wide.submit(() -> crypto.encryptAll(values)).get();
+            assertEquals(values, wide.submit(() -> crypto.decryptAll(encrypted)).get());
+        } finally {
+            wide.shutdown();
+        }
+    }
+
+    @Test
+    void test44_PersistedSnapshots_HoldNoPlaintextNorKey() throws Exception {
+        String snapshotDir = passwordFilePath + ".snapshots";
+        StorageManager storageManager = StorageManager.getInstance();
+        storageManager.setPasswordStorage(new FilePasswordStorage(passwordFilePath));
+        storageManager.savePassword("banco", "segredo-em-claro");
+        // a consulta regista a password decifrada no histórico
+        assertEquals("segredo-em-claro", storageManager.loadPassword("banco"));
+
+        AppStateBackupService backup = new AppStateBackupService(AppStateManager.getInstance(), snapshotDir, 2);
+        backup.takeSnapshot();
+        backup.close();
+
+        String written = new String(Files.readAllBytes(Paths.get(snapshotDir, "snapshots.dat")), StandardCharsets.ISO_8859_1);
+        assertFalse(written.contains("segredo-em-claro"));
+        assertFalse(written.contains(AppConfig.getInstance().getEncryptionKey()));
+
+        storageManager.savePassword("banco", "outra");
+        AppStateBackupService reopened = new AppStateBackupService(AppStateManager.getInstance(), snapshotDir, 2);
+        reopened.restoreSnapshot(0);
+        reopened.close();
+        assertEquals("segredo-em-claro", storageManager.loadPassword("banco"));
+    }
+
+    @Test
+    void test45_IndexedFlush_NeverTruncatesLiveFile() throws Exception {
+        IndexedFilePasswordStorage storage = IndexedFilePasswordStorage.open(passwordFilePath, 60_000);
+        storage.savePassword("cofre", "original");
+        storage.flush();
+
+        // um .tmp impossível de criar faz o flush falhar antes de tocar no ficheiro vivo
+        File tmp = new File(passwordFilePath + ".tmp");
+        assertTrue(tmp.mkdir());
+        try {
+            storage.savePassword("cofre", "nova");
+            assertThrows(RuntimeException.class, storage::flush);
+            Properties onDisk = new Properties();
+            try (InputStream input = new FileInputStream(passwordFilePath)) {
+                onDisk.load(input);
+            }
+            assertEquals("original", onDisk.getProperty("cofre"));
+        } finally {
+            tmp.delete();
+        }
+        storage.close();
+        IndexedFilePasswordStorage reopened = IndexedFilePasswordStorage.open(passwordFilePath, 60_000);
+        assertEquals("nova", reopened.loadPassword("cofre"));
+        reopened.close();
+    }
+
+    @Test
+    void test46_ConcurrentSetters_DoNotRevertEachOther() throws Exception {
+        AppConfig config = AppConfig.getInstance();
+        java.util.concurrent.ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> urls = executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    config.setDatabaseUrl("jdbc:teste:" + i);
+                }
+            });
+            Future<?> lengths = executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    config.setPasswordLength(11 + i);
+                }
+            });
+            urls.get();
+            lengths.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("jdbc:teste:499", config.getDatabaseUrl());
+        assertEquals(510, config.getPasswordLength());
+    }
+
+    @Test
+    void test47_FileStorage_RejectsWritesAfterClose() {
+        FilePasswordStorage closed = new FilePasswordStorage(passwordFilePath);
+        FilePasswordStorage open = new FilePasswordStorage(passwordFilePath);
+        closed.savePassword("antes", "gravada");
+        closed.close();
+
+        assertThrows(IllegalStateException.class, () -> closed.savePassword("depois", "perdida"));
+        assertThrows(IllegalStateException.class, () -> closed.saveAll(Map.of("depois", "perdida")));
+        assertThrows(IllegalStateException.class, () -> closed.deleteAll(List.of("antes")));
+        // as leituras e a outra instância sobre o mesmo ficheiro continuam a funcionar
+        assertEquals("gravada", closed.loadPassword("antes"));
+        open.savePassword("outra", "valor");
+        assertEquals("valor", open.loadPassword("outra"));
+        open.close();
+    }
+
+    @Test
+    void test48_VaultKeyChange_ReleasesReplacedCipherPool() throws Exception {
+        Properties props = new Properties();
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            props.load(input);
+        }
+        props.setProperty("folder.path", passwordFilePath);
+        props.setProperty("cipher.pool.type", AppConfig.CIPHER_POOL_CONCURRENT);
+        try (VaultContext vault = new VaultContext("rotacao", props)) {
+            CryptoManager replaced = vault.getCryptoManager();
+            java.lang.reflect.Field field = CryptoManager.class.getDeclaredField("cipherPool");
+            field.setAccessible(true);
+            ConcurrentCipherPool pool = (ConcurrentCipherPool) field.get(replaced);
+            assertTrue(pool.idleCount() > 0); // pré-preenchido no arranque
+            Cipher inFlight = pool.borrowCipher(Cipher.ENCRYPT_MODE);
+
+            vault.getConfig().setEncryptionKey("outra-chave-do-cofre");
+            assertNotSame(replaced, vault.getCryptoManager());
+            assertEquals(0, pool.idleCount());
+            // a operação em curso termina, mas o cipher devolvido não fica guardado
+            pool.releaseCipher(inFlight);
+            assertEquals(0, pool.idleCount());
+            assertEquals("depois", replaced.decrypt(replaced.encrypt("depois")));
+            assertEquals(0, pool.idleCount());
+        }
+    }
+
+    @Test
+    void test49_MappedStorage_ProbesUpdatesRebuildsAndReopens() throws Exception {
+        String vaultPath = passwordFilePath + ".vault";
+        MappedPasswordStorage storage = new MappedPasswordStorage(vaultPath, 16);
+        java.lang.reflect.Field capacity = MappedPasswordStorage.class.getDeclaredField("capacity");
+        capacity.setAccessible(true);
+        int initialCapacity = (int) capacity.get(storage);
+
+        // "Aa" e "BB" têm o mesmo hash: a segunda chave só é encontrada por linear probing
+        storage.savePassword("Aa", "primeira");
+        storage.savePassword("BB", "segunda");
+        assertEquals("primeira", storage.loadPassword("Aa"));
+        assertEquals("segunda", storage.loadPassword("BB"));
+        assertNull(storage.loadPassword("AaBB"));
+
+        // um valor que cabe no registo é reescrito no lugar, sem crescer o ficheiro
+        long before = new File(vaultPath).length();
+        storage.savePassword("Aa", "curta");
+        assertEquals("curta", storage.loadPassword("Aa"));
+        assertEquals(before, new File(vaultPath).length());
+        storage.savePassword("Aa", "um valor bem maior do que o registo original");
+        assertEquals("um valor bem maior do que o registo original", storage.loadPassword("Aa"));
+        assertEquals(2, storage.size());
+
+        // passar o fator de carga 0.7 reconstrói a tabela com o dobro dos slots, no mesmo ficheiro
+        Object fileKey = Files.readAttributes(Paths.get(vaultPath), java.nio.file.attribute.BasicFileAttributes.class).fileKey();
+        int limit = (int) (initialCapacity * 0.7);
+        for (int i = storage.size(); i <= limit; i++) {
+            storage.savePassword("categoria" + i, "valor" + i);
+        }
+        assertEquals(initialCapacity * 2, (int) capacity.get(storage));
+        assertEquals(fileKey, Files.readAttributes(Paths.get(vaultPath), java.nio.file.attribute.BasicFileAttributes.class).fileKey());
+        assertEquals(limit + 1, storage.size());
+        assertEquals("segunda", storage.loadPassword("BB"));
+        assertEquals("valor" + limit, storage.loadPassword("categoria" + limit));
+        Map<String, String> saved = storage.entries();
+        storage.close();
+
+        MappedPasswordStorage reopened = new MappedPasswordStorage(vaultPath);
+        assertEquals(saved, reopened.entries());
+        assertEquals(initialCapacity * 2, (int) capacity.get(reopened));
+        // vários crescimentos seguidos sobre um cofre reaberto
+        for (int i = 0; i < 3000; i++) {
+            reopened.savePassword("extra" + i, "valor" + i);
+        }
+        reopened.close();
+        MappedPasswordStorage grown = new MappedPasswordStorage(vaultPath);
+        assertEquals(saved.size() + 3000, grown.size());
+        assertEquals("valor2999", grown.loadPassword("extra2999"));
+        assertEquals("segunda", grown.loadPassword("BB"));
+        grown.close();
+    }
+
+    @Test
+    void test50_MappedStorage_RejectsWritesAfterClose() {
+        MappedPasswordStorage storage = new MappedPasswordStorage(passwordFilePath + ".vault");
+        storage.savePassword("antes", "gravada");
+        storage.close();
+
+        assertThrows(IllegalStateException.class, () -> storage.savePassword("depois", "perdida"));
+        assertThrows(IllegalStateException.class, () -> storage.saveAll(Map.of("depois", "perdida")));
+        assertEquals("gravada", storage.loadPassword("antes"));
+        storage.close(); // fechar de novo não faz nada
+
+        MappedPasswordStorage reopened = new MappedPasswordStorage(passwordFilePath + ".vault");
+        assertNull(reopened.loadPassword("depois"));
+        reopened.close();
+    }
+
+    @Test
+    void test51_MappedMode_ImportsPasswordFileOnFirstOpen() throws Exception {
+        FilePasswordStorage original = new FilePasswordStorage(passwordFilePath);
+        StorageManager fileManager = new StorageManager(original);
+        fileManager.savePassword("email", "importada");
+        fileManager.savePassword("banco", "tambem");
+        original.close();
+
+        File file = useConfigFile(Map.of("storage.mode", AppConfig.STORAGE_MAPPED, "folder.path", passwordFilePath));
+        try {
+            StorageManager mapped = StorageManager.getInstance();
+            assertTrue(new File(passwordFilePath + ".vault").exists());
+            assertEquals("importada", mapped.loadPassword("email"));
+            assertEquals("tambem", mapped.loadPassword("banco"));
+            mapped.savePassword("nova", "so-no-cofre");
+            // a troca grava o cofre mapeado no disco
+            mapped.setPasswordStorage(new FilePasswordStorage(passwordFilePath + ".fim"));
+
+            // o cofre já existe: abrir de novo não volta a importar o ficheiro antigo
+            new FilePasswordStorage(passwordFilePath).savePassword("tardia", "ignorada");
+            MappedPasswordStorage vault = new MappedPasswordStorage(passwordFilePath + ".vault");
+            assertNull(vault.loadPassword("tardia"));
+            assertNotNull(vault.loadPassword("nova"));
+            vault.close();
+        } finally {
+            System.clearProperty("config.file");
+            file.delete();
+        }
+    }
+
+    @Test
+    void test52_KeyRotation_CancelMigratesBackToConfiguredKey() throws Exception {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        Map<String, String> passwords = new LinkedHashMap<>();
+        for (int i = 0; i < 40; i++) {
+            passwords.put("categoria" + i, "valor" + i);
+        }
+        storageManager.saveAll(passwords);
+
+        KeyRotationService rotation = new KeyRotationService(storageManager, 4, 20);
+        rotation.start("chave-que-nunca-chega-a-valer");
+        while (rotation.getProcessed() < 8) {
+            Thread.sleep(5);
+        }
+        // escrita durante a rotação, já com a chave nova
+        storageManager.savePassword("criada-durante", "nova");
+        rotation.cancel();
+        assertTrue(rotation.awaitCompletion(5000));
+        assertEquals(KeyRotationService.State.CANCELLED, rotation.getState());
+
+        // um arranque novo só conhece a chave configurada e tem de ler o cofre inteiro
+        resetSingleton(KeyRing.class, "instance");
+        resetSingleton(CryptoManager.class, "instance");
+        resetSingleton(CipherPool.class, "instance");
+        StorageManager restarted = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        passwords.put("criada-durante", "nova");
+        assertEquals(passwords, restarted.loadAll(passwords.keySet()));
+    }
+
+    @Test
+    void test53_ShardedStorage_ConcurrentSavesShareGroupCommit() throws Exception {
+        ShardedPasswordStorage storage = ShardedPasswordStorage.open(passwordFilePath, 2);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.reset();
+        metrics.setEnabled(true);
+        java.util.concurrent.ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Void>> savers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                savers.add(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        storage.savePassword("t" + thread + "_" + i, "v" + i);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(savers)) {
+                future.get();
+            }
+            assertEquals(200, metrics.counter("file-storage.saves").getValue());
+            // sem lock por shard as gravações concorrentes juntam-se no mesmo fsync
+            assertTrue(metrics.counter("file-storage.commits").getValue() < 200);
+        } finally {
+            metrics.setEnabled(false);
+            executor.shutdown();
+        }
+        assertEquals(200, storage.categoryNames().size());
+        assertEquals("v24", storage.loadPassword("t3_24"));
+        storage.close();
+    }
+
+    @Test
+    void test54_LogAndMappedStorage_DeleteSurvivesReopen() throws Exception {
+        String logDir = passwordFilePath + ".segments";
+        LogStructuredPasswordStorage log = LogStructuredPasswordStorage.open(logDir, 64, 0);
+        log.saveAll(Map.of("fica", "sim", "sai", "nao", "outra", "tambem"));
+        log.deleteAll(List.of("sai", "inexistente"));
+        assertNull(log.loadPassword("sai"));
+        log.close();
+        // o tombstone é reposto no replay e desaparece com a compactação
+        LogStructuredPasswordStorage replayed = LogStructuredPasswordStorage.open(logDir, 64, 0);
+        assertEquals(Set.of("fica", "outra"), replayed.categoryNames());
+        replayed.compact();
+        replayed.deleteAll(List.of("outra"));
+        replayed.close();
+        LogStructuredPasswordStorage compacted = LogStructuredPasswordStorage.open(logDir, 64, 0);
+        assertEquals(Set.of("fica"), compacted.categoryNames());
+        assertEquals("sim", compacted.loadPassword("fica"));
+        compacted.close();
+
+        // "AaAa", "AaBB", "BBAa" e "BBBB" têm o mesmo hash e formam uma única sequência de probing
+        String vaultPath = passwordFilePath + ".vault";
+        MappedPasswordStorage mapped = new MappedPasswordStorage(vaultPath, 16);
+        for (String key : List.of("AaAa", "AaBB", "BBAa", "BBBB")) {
+            mapped.savePassword(key, "valor-" + key);
+        }
+        mapped.deleteAll(List.of("AaAa", "BBAa", "inexistente"));
+        assertEquals(2, mapped.size());
+        assertNull(mapped.loadPassword("AaAa"));
+        assertEquals("valor-AaBB", mapped.loadPassword("AaBB"));
+        assertEquals("valor-BBBB", mapped.loadPassword("BBBB"));
+        mapped.savePassword("AaAa", "de-volta");
+        mapped.close();
+        MappedPasswordStorage reopened = new MappedPasswordStorage(vaultPath);
+        assertEquals(Map.of("AaAa", "de-volta", "AaBB", "valor-AaBB", "BBBB", "valor-BBBB"), reopened.entries());
+        reopened.close();
+    }
+
+    @Test
+    void test55_CategoryHierarchy_DeletesPasswordsOnMappedStorage() {
+        StorageManager storageManager = new StorageManager(new MappedPasswordStorage(passwordFilePath + ".vault"));
+        CategoryHierarchy hierarchy = new CategoryHierarchy(passwordFilePath + ".tree", storageManager);
+        hierarchy.addSubCategory(null, "Projetos");
+        hierarchy.addLeaf("Projetos", "api").setPassword("segredo");
+        String key = hierarchy.getTree().find("Projetos/api").getStorageKey();
+
+        assertEquals(2, hierarchy.delete("Projetos"));
+        assertTrue(storageManager.loadAll(List.of(key)).isEmpty());
+        assertTrue(storageManager.categoryNames().isEmpty());
+    }
+
+    @Test
+    void test56_CategoryHierarchy_BatchWritesFileOnce() {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        String treeFile = passwordFilePath + ".tree";
+        CategoryHierarchy hierarchy = new CategoryHierarchy(treeFile, storageManager);
+        hierarchy.batch(h -> {
+            for (int i = 0; i < 100; i++) {
+                h.addSubCategory(null, "ramo" + i);
+                for (int j = 0; j < 20; j++) {
+                    h.addLeaf("ramo" + i, "folha" + j);
+                }
+            }
+            // nada é gravado até o lote terminar
+            assertFalse(new File(treeFile).exists());
+        });
+        assertTrue(new File(treeFile).exists());
+
+        CategoryHierarchy reopened = new CategoryHierarchy(treeFile, storageManager);
+        assertEquals(2100, reopened.getTree().size());
+        assertEquals(hierarchy.idOf("ramo99/folha19"), reopened.idOf("ramo99/folha19"));
+
+        // um lote que falha grava o que já foi aplicado
+        assertThrows(IllegalArgumentException.class, () -> reopened.batch(h -> {
+            h.addSubCategory(null, "novo");
+            h.addLeaf("inexistente", "folha");
+        }));
+        assertNotNull(new CategoryHierarchy(treeFile, storageManager).getTree().find("novo"));
+    }
+
+    @Test
+    void test57_IndexedStorage_SavesRacingCloseAreFlushedOrRejected() throws Exception {
+        IndexedFilePasswordStorage storage = IndexedFilePasswordStorage.open(passwordFilePath, 60_000);
+        Set<String> acknowledged = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        java.util.concurrent.ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> savers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            savers.add(executor.submit(() -> {
+                for (int i = 0; ; i++) {
+                    String name = "t" + thread + "_" + i;
+                    try {
+                        storage.savePassword(name, "v");
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                    acknowledged.add(name);
+                }
+            }));
+        }
+        Thread.sleep(50);
+        storage.close();
+        for (Future<?> saver : savers) {
+            saver.get();
+        }
+        executor.shutdown();
+
+        // tudo o que foi aceite está no disco
+        assertFalse(acknowledged.isEmpty());
+        assertTrue(new FilePasswordStorage(passwordFilePath).categoryNames().containsAll(acknowledged));
+    }
+
+    @Test
+    void test58_CharDecrypt_RoundTripsEveryLength() {
+        CryptoManager crypto = CryptoManager.getInstance();
+        char[] out = new char[600];
+        // os comprimentos maiores excedem os buffers por thread e usam arrays novos
+        for (int length : new int[]{1, 15, 16, 17, 47, 100, 190, 500}) {
+            StringBuilder password = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                password.append(i % 7 == 0 ? 'é' : (char) ('a' + i % 26));
+            }
+            String encrypted = crypto.encrypt(password.toString().toCharArray());
+            int written = crypto.decrypt(encrypted, 0, out);
+            assertEquals(password.toString(), new String(out, 0, written));
+            assertEquals(password.toString(), crypto.decrypt(encrypted));
+        }
+        assertThrows(IllegalArgumentException.class, () -> crypto.decrypt("ÀÀÀÀ", 0, out));
+    }
+
+    @Test
+    void test59_CategoryTree_ConcurrentAddsOfSamePathKeepOne() throws Exception {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        CategoryTree tree = new CategoryTree(storageManager);
+        tree.addSubCategory(null, "raiz");
+        tree.addSubCategory(null, "outra");
+        java.util.concurrent.ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int round = 0; round < 3000; round++) {
+            String name = "c" + round;
+            tree.addLeaf("outra", name);
+            java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+            AtomicInteger succeeded = new AtomicInteger();
+            List<Future<?>> racers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                racers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        if (thread == 0) {
+                            tree.move("outra/" + name, "raiz");
+                        } else {
+                            tree.addLeaf("raiz", name);
+                        }
+                        succeeded.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // outra thread ficou com o caminho
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> racer : racers) {
+                racer.get();
+            }
+            assertEquals(1, succeeded.get());
+        }
+        executor.shutdown();
+
+        // cada filho de "raiz" está indexado, sem duplicados
+        SubCategory raiz = (SubCategory) tree.find("raiz");
+        assertEquals(3000, raiz.getChildren().size());
+        for (Category child : raiz.getChildren()) {
+            assertSame(child, tree.find(child.getPath()));
+        }
+    }
+
+    @Test
+    void test60_CategoryTree_VisitsDeepChainWithoutStackOverflow() {
+        StorageManager storageManager = new StorageManager(new FilePasswordStorage(passwordFilePath));
+        CategoryTree tree = new CategoryTree(storageManager);
+        SubCategory root = new SubCategory("n0", storageManager);
+        SubCategory deepest = root;
+        for (int i = 1; i < 5_000; i++) {
+            SubCategory child = new SubCategory("n" + i, storageManager);
+            deepest.addChild(child);
+            deepest = child;
+        }
+        tree.add(null, root);
+        tree.addLeaf(deepest.getPath(), "folha");
+        assertEquals(5_001, tree.size());
+
+        AtomicInteger visited = new AtomicInteger();
+        tree.visit(null, category -> visited.incrementAndGet());
+        assertEquals(5_001, visited.get());
+    }
+
+    @Test
+    void test61_PersistedSnapshots_WithoutDatabaseUrl() throws Exception {
+        String snapshotDir = passwordFilePath + ".snapshots";
+        AppConfig.getInstance().setDatabaseUrl(null);
+        AppStateManager.getInstance().recordAccess("semUrl", "valor", "modification");
+        AppStateBackupService backup = new AppStateBackupService(AppStateManager.getInstance(), snapshotDir, 2);
+        backup.takeSnapshot();
+        backup.close();
+
+        AppConfig.getInstance().setDatabaseUrl("jdbc:outra");
+        AppStateBackupService reopened = new AppStateBackupService(AppStateManager.getInstance(), snapshotDir, 2);
+        reopened.restoreSnapshot(0);
+        reopened.close();
+        assertNull(AppConfig.getInstance().getDatabaseUrl());
+        assertEquals("valor", AppStateManager.getInstance().getLastAccessedPassword("semUrl"));
+    }
+
+    @Test
+    void test62_IndexedStorage_VaultsShareOneFlusherThread() throws Exception {
+        List<IndexedFilePasswordStorage> storages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            IndexedFilePasswordStorage storage = IndexedFilePasswordStorage.open(passwordFilePath + ".cofre" + i, 20);
+            storage.savePassword("conta", "valor" + i);
+            storages.add(storage);
+        }
+        long flushers = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("password-storage-flusher")).count();
+        assertEquals(1, flushers);
+
+        // o flush em background continua a servir todos os cofres
+        Thread.sleep(300);
+        for (int i = 0; i < 20; i++) {
+            assertEquals("valor" + i, new FilePasswordStorage(passwordFilePath + ".cofre" + i).loadPassword("conta"));
+        }
+        for (IndexedFilePasswordStorage storage : storages) {
+            storage.close();
+        }
+        IndexedFilePasswordStorage reopened = IndexedFilePasswordStorage.open(passwordFilePath + ".cofre0", 20);
+        assertEquals("valor0", reopened.loadPassword("conta"));
+        reopened.close();
+        for (int i = 0; i < 20; i++) {
+            Files.deleteIfExists(Paths.get(passwordFilePath + ".cofre" + i));
+        }
+    }
+
+    @Test
+    void test63_SecurityAlert_BatchEventListsBoundedPrefix() throws Exception {
+        InMemoryEventSink sink = new InMemoryEventSink(10);
+        try (EventPipeline events = EventPipeline.start(List.of(sink), 16, 8, EventPipeline.DropPolicy.BLOCK)) {
+            PasswordManager manager = new SecurityAlertDecorator(
+                    new BasicPasswordManager(new StorageManager(new FilePasswordStorage(passwordFilePath))), events);
+            Map<String, String> batch = new LinkedHashMap<>();
+            for (int i = 0; i < 5000; i++) {
+                batch.put("categoria" + i, "v");
+            }
+            manager.saveAll(batch);
+            manager.loadAll(List.of("a", "b"));
+
+            assertTrue(events.awaitDrained(5000));
+            String modified = sink.events().get(0).getMessage();
+            assertTrue(modified.startsWith("Passwords modified in 5000 categories: [categoria0, categoria1,"));
+            assertTrue(modified.endsWith("categoria9, …]"));
+            assertFalse(modified.contains("categoria10"));
+            assertEquals("Passwords accessed in 2 categories: [a, b]", sink.events().get(1).getMessage());
+        }
+    }
+
     @AfterAll
     static void cleanup() {
         testCounter.set(1); // Reset counter for next test class